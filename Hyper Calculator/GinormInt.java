@@ -1,40 +1,339 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntBinaryOperator;
 
 /**
  * Filename: GinormInt.java
- * Description:
+ * Description: Arbitrary-precision signed integers. Values that fit in a long
+ *              are stored inline in a long and their arithmetic is done on
+ *              longs with overflow checks; larger values store the magnitude
+ *              as an array of 32-bit limbs (base 2^32), least significant
+ *              limb first, with no leading zero limbs. Every value has
+ *              exactly one of the two forms. Instances are immutable: no
+ *              operation writes to the limbs of an existing GinormInt, so
+ *              values can be cached and shared between threads.
+ *              modPow does not yet match BigInteger.modPow: on JDK 17 it
+ *              takes about 2.2 times as long at 2048 to 8192 bits, because
+ *              HotSpot runs BigInteger's Montgomery multiply and square as
+ *              hand-written intrinsics. With those intrinsics turned off,
+ *              modPow is about twice as fast as BigInteger's.
  * Author:
  * Date:
  */
-public class GinormInt implements Comparable<GinormInt> {
-    // TODO: define your static and instance variables here
-    public static final GinormInt ONE = new GinormInt("1");
-    public static final GinormInt ZERO = new GinormInt("0");
-    public static final GinormInt TEN = new GinormInt("10");
-    private boolean negative = false;
-    private ArrayList<Byte> digits;
+public final class GinormInt implements Comparable<GinormInt> {
+    /**
+     * Terms of a series sum over n of a(n) * p(0)...p(n) / (q(0)...q(n)),
+     * for binarySplit(). Most series of hypergeometric type, such as the ones
+     * for e and pi, can be written this way with small integer terms.
+     */
+    public interface Series {
+        GinormInt a(int n);
+        GinormInt p(int n);
+        GinormInt q(int n);
+    }
+
+    /**
+     * Range of values that valueOf() hands out from a shared cache.
+     */
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final GinormInt[] SMALL_CACHE = new GinormInt[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < SMALL_CACHE.length; i++) {
+            SMALL_CACHE[i] = new GinormInt(CACHE_LOW + i);
+        }
+    }
+
+    public static final GinormInt ONE = valueOf(1);
+    public static final GinormInt ZERO = valueOf(0);
+    public static final GinormInt TEN = valueOf(10);
+
+    /**
+     * Montgomery arithmetic in modPow runs on limbs of this many bits. With
+     * two bits to spare, limb products are nonnegative, so Math.multiplyHigh
+     * gives their high half exactly, and a limb product plus two limbs fits
+     * in an unsigned long without carry checks.
+     */
+    private static final int MONTGOMERY_BITS = 62;
+    private static final long MONTGOMERY_MASK = (1L << MONTGOMERY_BITS) - 1;
+
+    /**
+     * Mask for reading a limb as an unsigned value.
+     */
+    private static final long LONG_MASK = 0xffffffffL;
+
+    /**
+     * For each radix, the number of digits in the largest power of the radix
+     * that fits in a positive int, and that power. Conversions handle one
+     * such chunk of digits per limb operation.
+     */
+    private static final int[] CHUNK_DIGITS = new int[Character.MAX_RADIX + 1];
+    private static final int[] CHUNK_VALUE = new int[Character.MAX_RADIX + 1];
+
+    static {
+        for (int radix = Character.MIN_RADIX; radix <= Character.MAX_RADIX; radix++) {
+            long value = radix;
+            int digits = 1;
+            while (value * radix <= Integer.MAX_VALUE) {
+                value *= radix;
+                digits++;
+            }
+            CHUNK_DIGITS[radix] = digits;
+            CHUNK_VALUE[radix] = (int)value;
+        }
+    }
+
+    /**
+     * Conversions at or below these sizes (in chunks of digits, and in limbs)
+     * use the quadratic chunk-at-a-time loop; above them they split the
+     * number in half around a power of the radix and recurse.
+     */
+    private static final int PARSE_SPLIT_CHUNKS = 40;
+    private static final int PRINT_SPLIT_LIMBS = 40;
+
+    /**
+     * Size of the binary format header: one sign byte (0 or 1) followed by
+     * the little-endian int count of limbs. The limbs follow as little-endian
+     * ints, least significant first.
+     */
+    static final int SERIALIZED_HEADER_BYTES = 5;
+
+    /**
+     * Number of limbs moved per buffer when reading or writing a channel.
+     */
+    private static final int CHANNEL_BUFFER_LIMBS = 8192;
 
     /**
-     * Constructor takes in a string, saves it, checks for a sign character,
-     * checks to see if it's all valid digits, and reverses it for later use.
+     * Cache of radix^(CHUNK_DIGITS[radix] * 2^k) for each radix, grown on demand.
+     */
+    private static final GinormInt[][] RADIX_POWERS = new GinormInt[Character.MAX_RADIX + 1][];
+
+    /**
+     * Cache of the Newton reciprocals of the large entries of RADIX_POWERS,
+     * which toString divides by over and over.
+     */
+    private static final GinormInt[][] RADIX_RECIPROCALS = new GinormInt[Character.MAX_RADIX + 1][];
+
+    /**
+     * Number of factors a product tree multiplies one by one at its leaves,
+     * and the smallest range, in factors, that is split into fork-join tasks
+     * when a tree is built in parallel.
+     */
+    private static final int TREE_LEAF_SIZE = 16;
+    private static final int TREE_FORK_SIZE = 1024;
+
+    /**
+     * Operand sizes, in limbs, at which times() switches from schoolbook to
+     * Karatsuba and from Karatsuba to Toom-3. Both can be overridden with the
+     * GinormInt.karatsubaThreshold and GinormInt.toomCookThreshold system
+     * properties or with setMultiplyThresholds().
+     */
+    private static volatile int karatsubaThreshold = 80;
+    private static volatile int toomCookThreshold = 240;
+
+    /**
+     * Shorter-operand size, in limbs, at which multiplication switches from
+     * Toom-3 to number-theoretic transforms. Can be overridden with the
+     * GinormInt.nttThreshold system property or with setNttThreshold().
+     */
+    private static volatile int nttThreshold = 80000;
+
+    /**
+     * Shorter-operand size, in limbs, from which parallelTimes() computes
+     * sub-products as separate fork-join tasks. Can be overridden with the
+     * GinormInt.parallelThreshold system property or with setParallelThreshold().
+     */
+    private static volatile int parallelThreshold = 1000;
+
+    /**
+     * Divisor size, in limbs, at which division switches from Knuth's
+     * Algorithm D to multiplying by a Newton-iterated reciprocal. Can be
+     * overridden with the GinormInt.newtonThreshold system property or with
+     * setNewtonDivisionThreshold().
+     */
+    private static volatile int newtonThreshold = 2000;
+
+    /**
+     * Applies the threshold system properties through the same checks as the
+     * setters. A value the setter rejects is reported on standard error and
+     * the default is kept, since a threshold that's too small makes the
+     * recursive algorithms recurse forever.
+     */
+    static {
+        applyThresholdProperty(() -> setMultiplyThresholds(
+                Integer.getInteger("GinormInt.karatsubaThreshold", karatsubaThreshold),
+                Integer.getInteger("GinormInt.toomCookThreshold", toomCookThreshold)));
+        applyThresholdProperty(() -> setNttThreshold(Integer.getInteger("GinormInt.nttThreshold", nttThreshold)));
+        applyThresholdProperty(() -> setParallelThreshold(
+                Integer.getInteger("GinormInt.parallelThreshold", parallelThreshold)));
+        applyThresholdProperty(() -> setNewtonDivisionThreshold(
+                Integer.getInteger("GinormInt.newtonThreshold", newtonThreshold)));
+    }
+
+    private final boolean negative;
+
+    /**
+     * Limbs of the magnitude, or null if the value fits in a long and is
+     * held in small instead.
+     */
+    private final int[] mag;
+    private final long small;
+
+    /**
+     * Constructor takes in a string, checks for a sign character, checks to
+     * see if it's all valid digits, and converts it to limbs.
      *
      * @param  value  String value to make into a GinormInt
      */
     public GinormInt(String value) {
-        String str = value;
-        if (value.contains("-")) {
-            negative = true;
-            str = value.substring(1);
+        this(parse(value, 10));
+    }
+
+    /**
+     * Constructor takes in the big-endian two's-complement bytes of a value,
+     * in the same format as toByteArray().
+     *
+     * @param  bytes two's-complement bytes, most significant first
+     */
+    public GinormInt(byte[] bytes) {
+        this(fromByteArray(bytes));
+    }
+
+    /**
+     * Constructor that shares the fields of an already-built GinormInt.
+     */
+    private GinormInt(GinormInt other) {
+        mag = other.mag;
+        small = other.small;
+        negative = other.negative;
+    }
+
+    /**
+     * Constructor for a value held inline in a long.
+     */
+    private GinormInt(long value) {
+        mag = null;
+        small = value;
+        negative = value < 0;
+    }
+
+    /**
+     * Constructor for results computed directly on limbs. Takes ownership of
+     * the array, which may contain leading zero limbs, and may share it with
+     * other GinormInts, so it must never be written to afterwards. Results
+     * that fit in a long are stored inline instead.
+     */
+    private GinormInt(int[] limbs, boolean isNegative) {
+        int[] stripped = stripLeadingZeros(limbs, limbs.length);
+        long value = stripped.length == 0 ? 0 : stripped[0] & LONG_MASK;
+        if (stripped.length == 2) {
+            value |= (long)stripped[1] << 32;
         }
-        String[] strDigits = str.split("(?!^)");
-        digits = new ArrayList<Byte>(strDigits.length);
-        for (int i = 0; i < strDigits.length; i++) {
-            if (!Character.isDigit(strDigits[i].charAt(0))) {
-                throw new IllegalArgumentException("Sorry, all characters must be decimal digit or sign characters.");
-            }
-            digits.add(0, Byte.parseByte(strDigits[i]));
+        if (stripped.length <= 1 || stripped.length == 2 && (value >= 0 || isNegative && value == Long.MIN_VALUE)) {
+            mag = null;
+            small = isNegative ? -value : value;
+            negative = small < 0;
+        } else {
+            mag = stripped;
+            small = 0;
+            negative = isNegative;
+        }
+    }
+
+    /**
+     * Returns a GinormInt with the value of a long. Small values come from a
+     * shared cache, so this is cheaper than parsing a String.
+     *
+     * @param  value long value to make into a GinormInt
+     * @return GinormInt with the given value
+     */
+    public static GinormInt valueOf(long value) {
+        if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+            return SMALL_CACHE[(int)value - CACHE_LOW];
+        }
+        return new GinormInt(value);
+    }
+
+    /**
+     * Builds a GinormInt from a copy of the first length limbs of an array,
+     * for MutableGinormInt.toImmutable().
+     */
+    static GinormInt fromLimbs(int[] limbs, int length, boolean isNegative) {
+        int[] copy = new int[length];
+        System.arraycopy(limbs, 0, copy, 0, length);
+        return new GinormInt(copy, isNegative);
+    }
+
+    /**
+     * Returns the limbs of the magnitude of this GinormInt. Values stored in
+     * limbs return their array without copying it; values stored inline get
+     * a new array. Either way the array must never be written to.
+     */
+    int[] limbs() {
+        if (mag != null) {
+            return mag;
+        }
+        if (small == 0) {
+            return new int[0];
         }
+        long magnitude = small < 0 ? -small : small;
+        if ((magnitude >>> 32) == 0) {
+            return new int[] {(int)magnitude};
+        }
+        return new int[] {(int)magnitude, (int)(magnitude >>> 32)};
+    }
+
+    /**
+     * Returns true if this GinormInt is stored inline as a long, for callers
+     * that want to read it with inlineValue() instead of allocating limbs().
+     */
+    boolean isInline() {
+        return mag == null;
+    }
+
+    /**
+     * Returns the value of an inline GinormInt.
+     */
+    long inlineValue() {
+        return small;
+    }
+
+    /**
+     * Returns true if this GinormInt is zero.
+     */
+    private boolean isZero() {
+        return mag == null && small == 0;
+    }
+
+    /**
+     * Returns the sum of two nonzero signed magnitudes.
+     */
+    private static GinormInt addSigned(int[] a, boolean aNegative, int[] b, boolean bNegative) {
+        if (aNegative == bNegative) {
+            return new GinormInt(addMagnitudes(a, b), aNegative);
+        }
+        int compare = compareMagnitudes(a, b);
+        if (compare == 0) {
+            return ZERO;
+        }
+        if (compare > 0) {
+            return new GinormInt(subtractMagnitudes(a, b), aNegative);
+        }
+        return new GinormInt(subtractMagnitudes(b, a), bNegative);
     }
 
     /**
@@ -44,52 +343,19 @@ public class GinormInt implements Comparable<GinormInt> {
      * @return GinormInt that's the sum of this GinormInt and the one passed in
      */
     public GinormInt plus(GinormInt otherInt) {
-        int compare = compareTo(otherInt);
-        int toCarry = 0;
-        int digitLength = 0;
-        byte added;
-        boolean carry = false;
-        String endSumString = "";
-        ArrayList<Byte> otherDigits = otherInt.getDigits();
-        if ((negative && otherInt.getNegative())
-                || (!negative && !otherInt.getNegative())) {
-            if (otherDigits.size() > digits.size()) {
-                digitLength = otherDigits.size();
-                for (int i = digits.size(); i < digitLength; i++) {
-                    digits.add((byte)0);
-                }
-            } else {
-                digitLength = digits.size();
-                for (int i = otherDigits.size(); i < digitLength; i++) {
-                    otherDigits.add((byte)0);
-                }
-            }
-            for (int i = 0; i < digitLength; i++) {
-                added = 0;
-                if (carry) {
-                    added += toCarry;
-                    carry = false;
-                    toCarry = 0;
-                }
-                added += digits.get(i) + otherDigits.get(i);
-                while (added >= 10) {
-                    carry = true;
-                    toCarry++;
-                    added -= 10;
-                }
-                endSumString += String.valueOf(added);
+        if (mag == null && otherInt.mag == null) {
+            long sum = small + otherInt.small;
+            if (((small ^ sum) & (otherInt.small ^ sum)) >= 0) {
+                return valueOf(sum);
             }
-            if (carry) {
-                endSumString += String.valueOf(toCarry);
-            }
-            GinormInt endSum = new GinormInt(reverseString(endSumString));
-            if (negative) {
-                endSum.setNegative(true);
-            }
-            return endSum;
-        } else {
-            return minus(otherInt);
         }
+        if (otherInt.isZero()) {
+            return this;
+        }
+        if (isZero()) {
+            return otherInt;
+        }
+        return addSigned(limbs(), negative, otherInt.limbs(), otherInt.negative);
     }
 
     /**
@@ -99,68 +365,19 @@ public class GinormInt implements Comparable<GinormInt> {
      * @return GinormInt that's the difference of this GinormInt and the one passed in
      */
     public GinormInt minus(GinormInt otherInt) {
-        int compare = compareTo(otherInt);
-        int digitLength = 0;
-        boolean setNegative = false;
-        int subtracted;
-        String differenceString = "";
-        ArrayList<Byte> otherDigits = otherInt.getDigits();
-        if (!negative && otherInt.getNegative()
-                || negative && !otherInt.getNegative()) {
-            if (negative) {
-                setNegative = true;
-            }
-            otherInt.setNegative(false);
-            negative = false;
-            GinormInt temp = plus(otherInt);
-            if (setNegative) {
-                temp.setNegative(true);
-            }
-            return temp;
-        }
-        if (otherDigits.size() > digits.size()) {
-            digitLength = otherDigits.size();
-            for (int i = digits.size(); i < digitLength; i++) {
-                digits.add((byte)0);
-            }
-        } else {
-            digitLength = digits.size();
-            for (int i = otherDigits.size(); i < digitLength; i++) {
-                otherDigits.add((byte)0);
+        if (mag == null && otherInt.mag == null) {
+            long difference = small - otherInt.small;
+            if (((small ^ otherInt.small) & (small ^ difference)) >= 0) {
+                return valueOf(difference);
             }
         }
-        if (compare > 0) {
-            for (int i = 0; i < digitLength; i++) {
-                if (digits.get(i) < otherDigits.get(i)) {
-                    digits.set(i + 1, (byte)(digits.get(i + 1) - 1));
-                    digits.set(i, (byte)(digits.get(i) + 10));
-                }
-                subtracted = digits.get(i) - otherDigits.get(i);
-                differenceString += String.valueOf(subtracted);
-            }
-            if (negative) {
-                setNegative = true;
-            }
-        } else if (compare < 0) {
-            for (int i = 0; i < digitLength; i++) {
-                if (otherDigits.get(i) < digits.get(i)) {
-                    otherDigits.set(i + 1, (byte)(otherDigits.get(i + 1) + 1));
-                    otherDigits.set(i, (byte)(otherDigits.get(i) + 10));
-                }
-                subtracted = otherDigits.get(i) - digits.get(i);
-                differenceString += String.valueOf(subtracted);
-            }
-            if (!negative) {
-                setNegative = true;
-            }
-        } else {
-            return ZERO;
+        if (otherInt.isZero()) {
+            return this;
         }
-        GinormInt endDifference = new GinormInt(reverseString(differenceString));
-        if (setNegative) {
-            endDifference.setNegative(true);
+        if (isZero()) {
+            return otherInt.negate();
         }
-        return endDifference;
+        return addSigned(limbs(), negative, otherInt.limbs(), !otherInt.negative);
     }
 
     /**
@@ -170,179 +387,2319 @@ public class GinormInt implements Comparable<GinormInt> {
      * @return GinormInt that's the product of this GinormInt and the one passed in
      */
     public GinormInt times(GinormInt otherInt) {
-        boolean setNegative = false;
-        boolean carry = false;
-        int toCarry = 0;
-        int multiplied = 0;
-        String tempProductStr = "";
-        ArrayList<Byte> otherDigits = otherInt.getDigits();
-        ArrayList<Byte> longer;
-        ArrayList<Byte> shorter;
-        GinormInt product = new GinormInt("0");
-        if (!negative && otherInt.getNegative()
-                || negative && !otherInt.getNegative()) {
-            setNegative = true;
-        }
-        if (digits.size() > otherDigits.size()) {
-            longer = new ArrayList(digits);
-            shorter = new ArrayList(otherDigits);
-        } else {
-            longer = new ArrayList(otherDigits);
-            shorter = new ArrayList(digits);
-        }
-        for (int i = 0; i < shorter.size(); i++) {
-            tempProductStr = "";
-            for (int j = 0; j < longer.size(); j++) {
-                multiplied = longer.get(j) * shorter.get(i);
-                if (carry) {
-                    multiplied += toCarry;
-                    toCarry = 0;
-                    carry = false;
-                }
-                while (multiplied >= 10 && j != longer.size() - 1) {
-                    multiplied -= 10;
-                    carry = true;
-                    toCarry++;
-                }
-                tempProductStr = String.valueOf(multiplied) + tempProductStr;
-            }
-            for (int k = 0; k < i; k++) {
-                tempProductStr += "0";
+        if (mag == null && otherInt.mag == null) {
+            long high = Math.multiplyHigh(small, otherInt.small);
+            long low = small * otherInt.small;
+            if (high == low >> 63) {
+                return valueOf(low);
             }
-            if (carry) {
-                tempProductStr = String.valueOf(toCarry) + tempProductStr;
-            }
-            product = product.plus(new GinormInt(tempProductStr));
         }
-        if (setNegative) {
-            product.setNegative(true);
+        if (isZero() || otherInt.isZero()) {
+            return ZERO;
         }
-        return product;
+        return new GinormInt(multiplyMagnitudes(limbs(), otherInt.limbs()), negative != otherInt.negative);
     }
 
     /**
-     * Method to divide a GinormInt passed in as an argument from this GinormInt.
+     * Method to multiply a GinormInt passed in as an argument to this GinormInt,
+     * splitting the work across the common fork-join pool.
      *
-     * @param  otherInt other GinormInt to divide into this GinormInt
-     * @return GinormInt that's the (truncated integer) ratio of this GinormInt and the one passed in
+     * @param  otherInt other GinormInt to multiply by this GinormInt
+     * @return GinormInt that's the product, identical to times(otherInt)
      */
-    public GinormInt div(GinormInt otherInt) {
-        // (Optional) your code here
-        //see powerpoint on Brightspace
-        throw new UnsupportedOperationException("Sorry, that operation is not yet implemented.");
+    public GinormInt parallelTimes(GinormInt otherInt) {
+        return parallelTimes(otherInt, ForkJoinPool.commonPool());
     }
 
     /**
-     * Method to find the remainder after dividing by a GinormInt passed in.
+     * Method to multiply a GinormInt passed in as an argument to this GinormInt,
+     * splitting the Karatsuba and Toom-3 sub-products of large operands
+     * across the given fork-join pool.
      *
-     * @param  otherInt other GinormInt to divide into this GinormInt to compute the remainder
-     * @return GinormInt that's the remainder after dividing the two BigInts
+     * @param  otherInt other GinormInt to multiply by this GinormInt
+     * @param  pool     pool to run the sub-products on
+     * @return GinormInt that's the product, identical to times(otherInt)
      */
-    public GinormInt mod(GinormInt otherInt) {
-        // (Optional) your code here
-        throw new UnsupportedOperationException("Sorry, that operation is not yet implemented.");
+    public GinormInt parallelTimes(GinormInt otherInt, ForkJoinPool pool) {
+        if (Math.min(limbs().length, otherInt.limbs().length) < parallelThreshold) {
+            return times(otherInt);
+        }
+        int[] product = pool.invoke(new MultiplyTask(limbs(), otherInt.limbs()));
+        return new GinormInt(product, negative != otherInt.negative);
     }
 
     /**
-     * Method to compare this GinormInt to another GinormInt passed in.
+     * Returns the operand size, in limbs, from which parallelTimes() splits
+     * work into separate tasks.
+     */
+    public static int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    /**
+     * Sets the operand size, in limbs, from which parallelTimes() splits work
+     * into separate tasks.
      *
-     * @param  otherInt other GinormInt to compare to
-     * @return 1 if this GinormInt is larger, 0 if equal, -1 if it's smaller
+     * @param  threshold smallest shorter-operand size multiplied in parallel, at least 1
      */
-    @Override
-    public int compareTo(GinormInt otherInt) {
-        if (negative && !otherInt.getNegative() || !negative && otherInt.getNegative()) {
-            if (negative) {
-                return -1;
-            }
-            return 1;
+    public static void setParallelThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Parallel threshold must be at least 1 limb");
         }
-        ArrayList<Byte> otherDigits = otherInt.getDigits();
-        if (digits.size() < otherDigits.size()) {
-            if (negative) {
-                return 1;
-            }
-            return -1;
+        parallelThreshold = threshold;
+    }
+
+    /**
+     * Runs a threshold setter for the static initializer, keeping the
+     * defaults if it rejects the property values.
+     */
+    private static void applyThresholdProperty(Runnable setter) {
+        try {
+            setter.run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring GinormInt threshold property: " + e.getMessage());
         }
-        if (digits.size() > otherDigits.size()) {
-            if (negative) {
-                return -1;
-            }
-            return 1;
+    }
+
+    /**
+     * Method to square this GinormInt.
+     *
+     * @return GinormInt that's this GinormInt times itself
+     */
+    public GinormInt square() {
+        return times(this);
+    }
+
+    /**
+     * Returns the operand size, in limbs, at which multiplication switches from
+     * Toom-3 to number-theoretic transforms.
+     */
+    public static int getNttThreshold() {
+        return nttThreshold;
+    }
+
+    /**
+     * Sets the operand size, in limbs, at which multiplication switches from
+     * Toom-3 to number-theoretic transforms.
+     *
+     * @param  threshold smallest operand size multiplied with NTT, at least 1
+     */
+    public static void setNttThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("NTT threshold must be at least 1 limb");
         }
-        for (int i = digits.size() - 1; i >= 0; i--) {
-            if (digits.get(i) > otherDigits.get(i)) {
-                return 1;
-            } else if (digits.get(i) < otherDigits.get(i)) {
-                return -1;
-            }
+        nttThreshold = threshold;
+    }
+
+    /**
+     * Returns the operand size, in limbs, at which multiplication switches from
+     * schoolbook to Karatsuba.
+     */
+    public static int getKaratsubaThreshold() {
+        return karatsubaThreshold;
+    }
+
+    /**
+     * Returns the operand size, in limbs, at which multiplication switches from
+     * Karatsuba to Toom-3.
+     */
+    public static int getToomCookThreshold() {
+        return toomCookThreshold;
+    }
+
+    /**
+     * Sets the operand sizes, in limbs, at which multiplication switches
+     * algorithms, so they can be tuned for the machine.
+     *
+     * @param  karatsuba smallest operand size multiplied with Karatsuba, at least 4
+     * @param  toomCook  smallest operand size multiplied with Toom-3, at least 8 and karatsuba
+     */
+    public static void setMultiplyThresholds(int karatsuba, int toomCook) {
+        if (karatsuba < 4) {
+            throw new IllegalArgumentException("Karatsuba threshold must be at least 4 limbs");
+        } else if (toomCook < 8 || toomCook < karatsuba) {
+            throw new IllegalArgumentException("Toom-Cook threshold must be at least 8 limbs and the Karatsuba threshold");
         }
-        return 0;
+        karatsubaThreshold = karatsuba;
+        toomCookThreshold = toomCook;
     }
 
     /**
-     * Method to check if this GinormInt equals another GinormInt passed in.
+     * Returns the divisor size, in limbs, at which division switches from
+     * Algorithm D to Newton reciprocal division.
+     */
+    public static int getNewtonDivisionThreshold() {
+        return newtonThreshold;
+    }
+
+    /**
+     * Sets the divisor size, in limbs, at which division switches from
+     * Algorithm D to Newton reciprocal division.
      *
-     * @param  otherInt other GinormInt to compare to
-     * @return true if they're equal, false otherwise
+     * @param  threshold smallest divisor size divided by reciprocal, at least 8
      */
-    public boolean equals(GinormInt otherInt) {
-        if (compareTo(otherInt) == 0) {
-            return true;
+    public static void setNewtonDivisionThreshold(int threshold) {
+        if (threshold < 8) {
+            throw new IllegalArgumentException("Newton division threshold must be at least 8 limbs");
         }
-        return false;
+        newtonThreshold = threshold;
     }
 
     /**
-     * Returns true if GinormInt is negative, false otherwise.
+     * Method to divide a GinormInt passed in as an argument from this GinormInt.
+     *
+     * @param  otherInt other GinormInt to divide into this GinormInt
+     * @return GinormInt that's the (truncated integer) ratio of this GinormInt and the one passed in
      */
-    public boolean getNegative() {
-        return negative;
+    public GinormInt div(GinormInt otherInt) {
+        return divMod(otherInt)[0];
+    }
+
+    /**
+     * Method to find the remainder after dividing by a GinormInt passed in.
+     * The remainder has the same sign as this GinormInt, matching div().
+     *
+     * @param  otherInt other GinormInt to divide into this GinormInt to compute the remainder
+     * @return GinormInt that's the remainder after dividing the two BigInts
+     */
+    public GinormInt mod(GinormInt otherInt) {
+        return divMod(otherInt)[1];
     }
 
     /**
-     * Sets negative to true or false.
+     * Method to divide by a GinormInt passed in, computing the quotient and
+     * the remainder together.
+     *
+     * @param  otherInt other GinormInt to divide into this GinormInt
+     * @return array holding the truncated quotient, then the remainder
      */
-    public void setNegative(boolean newNegative) {
-        negative = newNegative;
+    public GinormInt[] divMod(GinormInt otherInt) {
+        if (otherInt.isZero()) {
+            throw new ArithmeticException("Sorry, division by zero.");
+        }
+        if (mag == null && otherInt.mag == null && (small != Long.MIN_VALUE || otherInt.small != -1)) {
+            return new GinormInt[] {valueOf(small / otherInt.small), valueOf(small % otherInt.small)};
+        }
+        int[][] result = divideMagnitudes(limbs(), otherInt.limbs());
+        return new GinormInt[] {
+            new GinormInt(result[0], negative != otherInt.negative),
+            new GinormInt(result[1], negative)
+        };
     }
 
     /**
-     * Returns the GinormInt's digits.
+     * Method to raise this GinormInt to a power by repeated squaring.
+     *
+     * @param  exponent power to raise to, at least 0
+     * @return GinormInt that's this GinormInt to the given power
      */
-    public ArrayList<Byte> getDigits() {
-        ArrayList<Byte> toReturn = new ArrayList<>();
-        for (byte num : digits) {
-            toReturn.add(num);
+    public GinormInt pow(int exponent) {
+        if (exponent < 0) {
+            throw new ArithmeticException("Sorry, exponent must not be negative.");
         }
-        return toReturn;
+        GinormInt result = ONE;
+        for (int bit = 31 - Integer.numberOfLeadingZeros(exponent); bit >= 0; bit--) {
+            result = result.square();
+            if ((exponent & (1 << bit)) != 0) {
+                result = result.times(this);
+            }
+        }
+        return result;
     }
 
     /**
-     * Takes a String and returns a reversed String.
+     * Method to raise this GinormInt to a power modulo another GinormInt. The
+     * exponent is scanned with a sliding window, and odd moduli multiply in
+     * Montgomery form on 62-bit limbs so no step needs a division.
+     *
+     * @param  exponent power to raise to, at least 0
+     * @param  modulus  modulus to reduce by, greater than 0
+     * @return GinormInt that's this^exponent mod modulus, from 0 to modulus - 1
      */
-    public String reverseString(String str) {
-        String reversed = "";
-        for (int i = str.length() - 1; i >= 0; i--) {
-            reversed += str.charAt(i);
+    public GinormInt modPow(GinormInt exponent, GinormInt modulus) {
+        if (modulus.negative || modulus.isZero()) {
+            throw new ArithmeticException("Sorry, modulus must be positive.");
+        } else if (exponent.negative) {
+            throw new ArithmeticException("Sorry, exponent must not be negative.");
+        }
+        if (modulus.equals(ONE)) {
+            return ZERO;
+        }
+        int[] base = divideMagnitudes(limbs(), modulus.limbs())[1];
+        if (negative && base.length > 0) {
+            base = subtractMagnitudes(modulus.limbs(), base);
+        }
+        int[] result;
+        if ((modulus.limbs()[0] & 1) != 0) {
+            result = montgomeryModPow(base, exponent.limbs(), modulus.limbs());
+        } else {
+            result = plainModPow(base, exponent.limbs(), modulus.limbs());
         }
-        return reversed;
+        return new GinormInt(result, false);
     }
 
     /**
-     * Method to return the string representation of this GinormInt.
+     * Method to find the greatest common divisor of this GinormInt and another
+     * with Lehmer's algorithm: quotients are worked out on the leading 62 bits
+     * of both values with long arithmetic, and only the combined step is
+     * applied to the full values. Once the smaller value fits in 62 bits the
+     * rest is done with binary GCD on longs.
      *
-     * @return String representation
+     * @param  otherInt other GinormInt to find the common divisor with
+     * @return GinormInt that's the greatest common divisor, never negative
      */
-    @Override
-    public String toString() {
-        String str = "";
-        for (byte i : digits) {
-            str += String.valueOf(i);
+    public GinormInt gcd(GinormInt otherInt) {
+        GinormInt a = abs();
+        GinormInt b = otherInt.abs();
+        if (a.compareTo(b) < 0) {
+            GinormInt swap = a;
+            a = b;
+            b = swap;
         }
-        if (negative) {
-            str += "-";
+        while (bitLength(b.limbs()) > 62) {
+            int shift = Math.max(0, bitLength(a.limbs()) - 62);
+            long x = a.shiftedRight(shift).longValue();
+            long y = b.shiftedRight(shift).longValue();
+            long ca = 1;
+            long cb = 0;
+            long cc = 0;
+            long cd = 1;
+            while (y + cc != 0 && y + cd != 0) {
+                long q = (x + ca) / (y + cc);
+                if (q != (x + cb) / (y + cd)) {
+                    break;
+                }
+                long t = ca - q * cc;
+                ca = cc;
+                cc = t;
+                t = cb - q * cd;
+                cb = cd;
+                cd = t;
+                t = x - q * y;
+                x = y;
+                y = t;
+            }
+            if (cb == 0) {
+                GinormInt remainder = a.mod(b);
+                a = b;
+                b = remainder;
+            } else {
+                GinormInt nextA = valueOf(ca).times(a).plus(valueOf(cb).times(b));
+                b = valueOf(cc).times(a).plus(valueOf(cd).times(b));
+                a = nextA;
+            }
+        }
+        if (b.isZero()) {
+            return a;
+        }
+        return valueOf(binaryGcd(a.mod(b).longValue(), b.longValue()));
+    }
+
+    /**
+     * Method to find the integer square root of this GinormInt with Newton's
+     * method, starting from a double-precision estimate of the leading bits.
+     *
+     * @return GinormInt that's the largest integer whose square is at most this one
+     */
+    public GinormInt sqrt() {
+        if (negative) {
+            throw new ArithmeticException("Sorry, can't take the square root of a negative number.");
+        }
+        if (isZero()) {
+            return ZERO;
+        }
+        int shift = Math.max(0, bitLength(limbs()) - 62) & ~1;
+        long top = shiftedRight(shift).longValue();
+        GinormInt x = valueOf((long)Math.sqrt((double)top) + 2).shiftedLeft(shift / 2);
+        while (true) {
+            GinormInt next = x.plus(div(x)).shiftedRight(1);
+            if (next.compareTo(x) >= 0) {
+                return x;
+            }
+            x = next;
+        }
+    }
+
+    /**
+     * Method to compute n!, multiplying the factors in a balanced product
+     * tree so the big multiplications are between operands of similar size.
+     * Factors of two are stripped from every factor and put back with a
+     * single shift at the end.
+     *
+     * @param  n number to take the factorial of, at least 0
+     * @return GinormInt that's n!
+     */
+    public static GinormInt factorial(int n) {
+        return factorial(n, false);
+    }
+
+    /**
+     * Method to compute n!, optionally building the subtrees of the product
+     * tree as fork-join tasks in the common pool.
+     *
+     * @param  n        number to take the factorial of, at least 0
+     * @param  parallel true to compute subtrees in parallel
+     * @return GinormInt that's n!
+     */
+    public static GinormInt factorial(int n, boolean parallel) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Sorry, can't take the factorial of a negative number.");
+        }
+        return oddRangeProduct(1, (long)n + 1, parallel).shiftedLeft(twosInFactorial(n));
+    }
+
+    /**
+     * Method to compute the binomial coefficient n choose k, as the product
+     * of n - k + 1 through n divided by k!, both built as product trees.
+     *
+     * @param  n size of the set, at least 0
+     * @param  k size of the subsets
+     * @return GinormInt that's n choose k, which is zero if k is negative or more than n
+     */
+    public static GinormInt binomial(int n, int k) {
+        return binomial(n, k, false);
+    }
+
+    /**
+     * Method to compute the binomial coefficient n choose k, optionally
+     * building the product trees in parallel.
+     *
+     * @param  n        size of the set, at least 0
+     * @param  k        size of the subsets
+     * @param  parallel true to compute subtrees in parallel
+     * @return GinormInt that's n choose k, which is zero if k is negative or more than n
+     */
+    public static GinormInt binomial(int n, int k, boolean parallel) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Sorry, can't choose from a negative number of things.");
+        }
+        if (k < 0 || k > n) {
+            return ZERO;
+        }
+        k = Math.min(k, n - k);
+        GinormInt numerator = oddRangeProduct((long)n - k + 1, (long)n + 1, parallel);
+        GinormInt denominator = oddRangeProduct(1, k + 1, parallel);
+        int twos = twosInFactorial(n) - twosInFactorial(n - k) - twosInFactorial(k);
+        return numerator.div(denominator).shiftedLeft(twos);
+    }
+
+    /**
+     * Method to multiply a list of GinormInts in a balanced product tree.
+     *
+     * @param  factors GinormInts to multiply
+     * @return GinormInt that's the product of all of them, or ONE if the list is empty
+     */
+    public static GinormInt product(List<GinormInt> factors) {
+        return product(factors, false);
+    }
+
+    /**
+     * Method to multiply a list of GinormInts in a balanced product tree,
+     * optionally building subtrees as fork-join tasks in the common pool.
+     *
+     * @param  factors  GinormInts to multiply
+     * @param  parallel true to compute subtrees in parallel
+     * @return GinormInt that's the product of all of them, or ONE if the list is empty
+     */
+    public static GinormInt product(List<GinormInt> factors, boolean parallel) {
+        GinormInt[] array = factors.toArray(new GinormInt[0]);
+        return productTree(0, array.length, (from, to) -> {
+            GinormInt result = ONE;
+            for (int i = (int)from; i < to; i++) {
+                result = result.times(array[i]);
+            }
+            return result;
+        }, parallel);
+    }
+
+    /**
+     * Method to sum terms from through to - 1 of a series by binary
+     * splitting. The range is halved recursively and each half is summed as
+     * an exact fraction, so the work is a few multiplications of balanced
+     * operands instead of a long chain of big-by-small ones. Returns
+     * {P, Q, T}: P and Q are the products of p(n) and q(n) over the range,
+     * and the partial sum is T / Q, so a sum to d decimal places is
+     * T.times(TEN.pow(d)).div(Q).
+     *
+     * @param  series terms of the series
+     * @param  from   first term to sum
+     * @param  to     one past the last term to sum, more than from
+     * @return array holding P, Q and T
+     */
+    public static GinormInt[] binarySplit(Series series, int from, int to) {
+        return binarySplit(series, from, to, false);
+    }
+
+    /**
+     * Method to sum terms from through to - 1 of a series by binary
+     * splitting, optionally computing the halves as fork-join tasks in the
+     * common pool.
+     *
+     * @param  series   terms of the series
+     * @param  from     first term to sum
+     * @param  to       one past the last term to sum, more than from
+     * @param  parallel true to compute subtrees in parallel
+     * @return array holding P, Q and T
+     */
+    public static GinormInt[] binarySplit(Series series, int from, int to, boolean parallel) {
+        if (from >= to) {
+            throw new IllegalArgumentException("Sorry, the series must have at least one term.");
+        }
+        BinarySplitTask task = new BinarySplitTask(series, from, to, parallel);
+        return parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+    }
+
+    /**
+     * Method to shift this GinormInt left, in two's complement, which
+     * multiplies it by 2^bits. A negative distance shifts right instead.
+     *
+     * @param  bits number of bits to shift by
+     * @return GinormInt that's this GinormInt shifted left
+     */
+    public GinormInt shiftLeft(int bits) {
+        if (bits < 0) {
+            return bits == Integer.MIN_VALUE ? (negative ? valueOf(-1) : ZERO) : shiftRight(-bits);
+        }
+        if (mag == null && bits < 63 && (small << bits) >> bits == small) {
+            return valueOf(small << bits);
+        }
+        return new GinormInt(shiftLeftMagnitude(limbs(), bits), negative);
+    }
+
+    /**
+     * Method to shift this GinormInt right, in two's complement, which
+     * divides it by 2^bits rounding toward negative infinity. A negative
+     * distance shifts left instead.
+     *
+     * @param  bits number of bits to shift by
+     * @return GinormInt that's this GinormInt shifted right
+     */
+    public GinormInt shiftRight(int bits) {
+        if (bits < 0) {
+            if (bits == Integer.MIN_VALUE) {
+                throw new ArithmeticException("Sorry, shift distance is too large.");
+            }
+            return shiftLeft(-bits);
+        }
+        if (mag == null) {
+            return valueOf(small >> Math.min(bits, 63));
+        }
+        int[] shifted = shiftRightMagnitude(mag, bits);
+        if (negative && lowestSetBit(mag) < bits) {
+            shifted = addMagnitudes(shifted, new int[] {1});
+        }
+        return new GinormInt(shifted, negative);
+    }
+
+    /**
+     * Method to compute the bitwise AND of this GinormInt and another, in
+     * two's complement.
+     *
+     * @param  otherInt other GinormInt to AND with
+     * @return GinormInt that's this AND otherInt
+     */
+    public GinormInt and(GinormInt otherInt) {
+        if (mag == null && otherInt.mag == null) {
+            return valueOf(small & otherInt.small);
+        }
+        return bitwise(otherInt, (x, y) -> x & y);
+    }
+
+    /**
+     * Method to compute the bitwise OR of this GinormInt and another, in
+     * two's complement.
+     *
+     * @param  otherInt other GinormInt to OR with
+     * @return GinormInt that's this OR otherInt
+     */
+    public GinormInt or(GinormInt otherInt) {
+        if (mag == null && otherInt.mag == null) {
+            return valueOf(small | otherInt.small);
+        }
+        return bitwise(otherInt, (x, y) -> x | y);
+    }
+
+    /**
+     * Method to compute the bitwise exclusive OR of this GinormInt and
+     * another, in two's complement.
+     *
+     * @param  otherInt other GinormInt to XOR with
+     * @return GinormInt that's this XOR otherInt
+     */
+    public GinormInt xor(GinormInt otherInt) {
+        if (mag == null && otherInt.mag == null) {
+            return valueOf(small ^ otherInt.small);
+        }
+        return bitwise(otherInt, (x, y) -> x ^ y);
+    }
+
+    /**
+     * Method to compute the bitwise complement of this GinormInt in two's
+     * complement, which is -this - 1.
+     *
+     * @return GinormInt that's NOT this
+     */
+    public GinormInt not() {
+        if (mag == null) {
+            return valueOf(~small);
+        }
+        return negate().minus(ONE);
+    }
+
+    /**
+     * Method to check a bit of this GinormInt in two's complement, where
+     * negative values have infinitely many leading one bits.
+     *
+     * @param  n index of the bit, 0 for the least significant
+     * @return true if the bit is set
+     */
+    public boolean testBit(int n) {
+        if (n < 0) {
+            throw new ArithmeticException("Sorry, bit index must not be negative.");
+        }
+        if (mag == null) {
+            return ((small >> Math.min(n, 63)) & 1) != 0;
+        }
+        int limb = n >>> 5;
+        if (limb >= mag.length) {
+            return negative;
+        }
+        return (twosComplementLimb(limb) & (1 << (n & 31))) != 0;
+    }
+
+    /**
+     * Method to find the number of bits in the shortest two's-complement
+     * form of this GinormInt, not counting the sign bit.
+     *
+     * @return number of bits, 0 for zero and -1
+     */
+    public int bitLength() {
+        if (mag == null) {
+            return 64 - Long.numberOfLeadingZeros(small < 0 ? ~small : small);
+        }
+        int length = bitLength(mag);
+        if (negative && lowestSetBit(mag) == length - 1) {
+            length--;
+        }
+        return length;
+    }
+
+    /**
+     * Method to count the bits of this GinormInt's two's-complement form that
+     * differ from its sign bit: the one bits of a non-negative value, or the
+     * zero bits of a negative one.
+     *
+     * @return number of bits that differ from the sign bit
+     */
+    public int bitCount() {
+        if (mag == null) {
+            return Long.bitCount(small < 0 ? ~small : small);
+        }
+        int[] x = negative ? subtractMagnitudes(mag, new int[] {1}) : mag;
+        int count = 0;
+        for (int limb : x) {
+            count += Integer.bitCount(limb);
+        }
+        return count;
+    }
+
+    /**
+     * Method to get the big-endian two's-complement bytes of this GinormInt,
+     * using the fewest bytes that include a sign bit. The limbs are copied
+     * out directly, with no decimal conversion.
+     *
+     * @return two's-complement bytes, most significant first
+     */
+    public byte[] toByteArray() {
+        int[] words = toTwosComplement(bitLength() / 32 + 1);
+        byte[] bytes = new byte[bitLength() / 8 + 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[bytes.length - 1 - i] = (byte)(words[i >>> 2] >>> (8 * (i & 3)));
+        }
+        return bytes;
+    }
+
+    /**
+     * Method to compare this GinormInt to another GinormInt passed in.
+     *
+     * @param  otherInt other GinormInt to compare to
+     * @return 1 if this GinormInt is larger, 0 if equal, -1 if it's smaller
+     */
+    @Override
+    public int compareTo(GinormInt otherInt) {
+        if (mag == null && otherInt.mag == null) {
+            return Long.compare(small, otherInt.small);
+        }
+        if (negative != otherInt.negative) {
+            return negative ? -1 : 1;
+        }
+        int compare = compareMagnitudes(limbs(), otherInt.limbs());
+        return negative ? -compare : compare;
+    }
+
+    /**
+     * Method to check if this GinormInt equals another GinormInt passed in.
+     *
+     * @param  otherInt other GinormInt to compare to
+     * @return true if they're equal, false otherwise
+     */
+    public boolean equals(GinormInt otherInt) {
+        if (compareTo(otherInt) == 0) {
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method to check if this GinormInt equals another object, so GinormInts
+     * can be used as keys in hash-based collections.
+     *
+     * @param  other object to compare to
+     * @return true if other is a GinormInt with the same value, false otherwise
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof GinormInt && equals((GinormInt)other);
+    }
+
+    /**
+     * Returns a hash code consistent with equals().
+     */
+    @Override
+    public int hashCode() {
+        if (mag == null) {
+            return Long.hashCode(small);
+        }
+        int hash = 0;
+        for (int limb : mag) {
+            hash = 31 * hash + limb;
+        }
+        return negative ? -hash : hash;
+    }
+
+    /**
+     * Returns a GinormInt with the same magnitude and the opposite sign.
+     */
+    public GinormInt negate() {
+        if (mag == null && small != Long.MIN_VALUE) {
+            return valueOf(-small);
+        }
+        return new GinormInt(limbs(), !negative);
+    }
+
+    /**
+     * Returns the absolute value of this GinormInt.
+     */
+    public GinormInt abs() {
+        return negative ? negate() : this;
+    }
+
+    /**
+     * Returns true if GinormInt is negative, false otherwise.
+     */
+    public boolean getNegative() {
+        return negative;
+    }
+
+    /**
+     * Returns the GinormInt's decimal digits, least significant first.
+     */
+    public ArrayList<Byte> getDigits() {
+        String str = toString();
+        int stop = negative ? 1 : 0;
+        ArrayList<Byte> toReturn = new ArrayList<>(str.length());
+        for (int i = str.length() - 1; i >= stop; i--) {
+            toReturn.add((byte)(str.charAt(i) - '0'));
+        }
+        return toReturn;
+    }
+
+    /**
+     * Takes a String and returns a reversed String.
+     */
+    public String reverseString(String str) {
+        return new StringBuilder(str).reverse().toString();
+    }
+
+    /**
+     * Parses a GinormInt from a sequence of digits in the given radix with an
+     * optional leading sign. Long inputs are split in half around a power of
+     * the radix and the halves are parsed recursively, so the work is
+     * dominated by a few large multiplications instead of one per digit.
+     *
+     * @param  text  digits to parse, read in place without copying
+     * @param  radix radix of the digits, from Character.MIN_RADIX to Character.MAX_RADIX
+     * @return the parsed GinormInt
+     */
+    public static GinormInt parse(CharSequence text, int radix) {
+        if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+            throw new IllegalArgumentException("Sorry, radix must be between " + Character.MIN_RADIX
+                    + " and " + Character.MAX_RADIX + ".");
+        }
+        int start = 0;
+        boolean isNegative = false;
+        if (text.length() > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            isNegative = text.charAt(0) == '-';
+            start = 1;
+        }
+        if (start == text.length()) {
+            throw new IllegalArgumentException("Sorry, all characters must be decimal digit or sign characters.");
+        }
+        if (text.length() - start <= 2 * CHUNK_DIGITS[radix]) {
+            long value = 0;
+            int i = start;
+            for (; i < text.length(); i++) {
+                int digit = Character.digit(text.charAt(i), radix);
+                if (digit < 0) {
+                    break;
+                }
+                value = value * radix + digit;
+            }
+            if (i == text.length()) {
+                return valueOf(isNegative ? -value : value);
+            }
+        }
+        return new GinormInt(parseMagnitude(text, start, text.length(), radix), isNegative);
+    }
+
+    /**
+     * Parses the digits from start through end - 1 of text into a magnitude.
+     */
+    private static int[] parseMagnitude(CharSequence text, int start, int end, int radix) {
+        int chunkDigits = CHUNK_DIGITS[radix];
+        int chunks = (end - start + chunkDigits - 1) / chunkDigits;
+        if (chunks <= PARSE_SPLIT_CHUNKS) {
+            int[] limbs = new int[chunks + 1];
+            int length = 0;
+            int first = (end - start) % chunkDigits;
+            if (first == 0) {
+                first = chunkDigits;
+            }
+            int chunkStart = start;
+            int chunkEnd = start + first;
+            while (chunkStart < end) {
+                int chunk = 0;
+                int factor = 1;
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                    int digit = Character.digit(text.charAt(i), radix);
+                    if (digit < 0) {
+                        throw new IllegalArgumentException(radix == 10
+                                ? "Sorry, all characters must be decimal digit or sign characters."
+                                : "Sorry, all characters must be radix " + radix + " digit or sign characters.");
+                    }
+                    chunk = chunk * radix + digit;
+                    factor *= radix;
+                }
+                length = mulAddInPlace(limbs, length, factor, chunk);
+                chunkStart = chunkEnd;
+                chunkEnd += chunkDigits;
+            }
+            return stripLeadingZeros(limbs, length);
+        }
+        int k = 0;
+        while ((long)chunkDigits << (k + 1) < end - start) {
+            k++;
+        }
+        int lowDigits = chunkDigits << k;
+        int[] high = parseMagnitude(text, start, end - lowDigits, radix);
+        int[] low = parseMagnitude(text, end - lowDigits, end, radix);
+        int[] value = multiplyMagnitudes(high, radixPower(radix, k).limbs());
+        if (value.length <= low.length) {
+            value = addMagnitudes(value, low);
+        } else {
+            addInto(value, 0, low);
+        }
+        return value;
+    }
+
+    /**
+     * Returns radix^(CHUNK_DIGITS[radix] * 2^k), computing and caching it by
+     * repeated squaring the first time it is needed.
+     */
+    private static synchronized GinormInt radixPower(int radix, int k) {
+        GinormInt[] powers = RADIX_POWERS[radix];
+        if (powers == null || powers.length <= k) {
+            GinormInt[] grown = new GinormInt[k + 1];
+            int known = 0;
+            if (powers != null) {
+                known = powers.length;
+                System.arraycopy(powers, 0, grown, 0, known);
+            } else {
+                grown[0] = new GinormInt(new int[] {CHUNK_VALUE[radix]}, false);
+                known = 1;
+            }
+            for (int i = known; i <= k; i++) {
+                grown[i] = grown[i - 1].times(grown[i - 1]);
+            }
+            RADIX_POWERS[radix] = grown;
+            powers = grown;
+        }
+        return powers[k];
+    }
+
+    /**
+     * Returns the Newton reciprocal of radixPower(radix, k), computing and
+     * caching it the first time it is needed.
+     */
+    private static synchronized GinormInt radixReciprocal(int radix, int k) {
+        GinormInt[] reciprocals = RADIX_RECIPROCALS[radix];
+        if (reciprocals == null || reciprocals.length <= k) {
+            GinormInt[] grown = new GinormInt[k + 1];
+            if (reciprocals != null) {
+                System.arraycopy(reciprocals, 0, grown, 0, reciprocals.length);
+            }
+            RADIX_RECIPROCALS[radix] = grown;
+            reciprocals = grown;
+        }
+        if (reciprocals[k] == null) {
+            GinormInt power = radixPower(radix, k);
+            reciprocals[k] = reciprocal(power, power.limbs().length);
+        }
+        return reciprocals[k];
+    }
+
+    /**
+     * Returns the string representation of this GinormInt in the given radix.
+     *
+     * @param  radix radix of the digits, from Character.MIN_RADIX to Character.MAX_RADIX
+     * @return String representation
+     */
+    public String toString(int radix) {
+        StringBuilder str = new StringBuilder();
+        try {
+            writeTo(str, radix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return str.toString();
+    }
+
+    /**
+     * Writes the decimal representation of this GinormInt to out without
+     * building an intermediate String.
+     *
+     * @param  out destination for the digits
+     * @throws IOException if out throws while appending
+     */
+    public void writeTo(Appendable out) throws IOException {
+        writeTo(out, 10);
+    }
+
+    /**
+     * Writes the representation of this GinormInt in the given radix to out.
+     * Large values are split around a power of the radix close to their
+     * square root, and the quotient and remainder are written recursively, so
+     * the work is dominated by a few large divisions instead of one per digit.
+     *
+     * @param  out   destination for the digits
+     * @param  radix radix of the digits, from Character.MIN_RADIX to Character.MAX_RADIX
+     * @throws IOException if out throws while appending
+     */
+    public void writeTo(Appendable out, int radix) throws IOException {
+        if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX) {
+            throw new IllegalArgumentException("Sorry, radix must be between " + Character.MIN_RADIX
+                    + " and " + Character.MAX_RADIX + ".");
+        }
+        if (mag == null) {
+            out.append(Long.toString(small, radix));
+            return;
+        }
+        if (negative) {
+            out.append('-');
+        }
+        writeMagnitude(limbs(), out, radix, 0);
+    }
+
+    /**
+     * Writes magnitude x in the given radix, left-padded with zeros to at
+     * least padDigits digits.
+     */
+    private static void writeMagnitude(int[] x, Appendable out, int radix, int padDigits) throws IOException {
+        if (x.length <= PRINT_SPLIT_LIMBS) {
+            writeSmallMagnitude(x, out, radix, padDigits);
+            return;
+        }
+        int k = 0;
+        while (2 * radixPower(radix, k + 1).limbs().length <= x.length + 1) {
+            k++;
+        }
+        int lowDigits = CHUNK_DIGITS[radix] << k;
+        int[] power = radixPower(radix, k).limbs();
+        int[][] split;
+        if (power.length >= newtonThreshold) {
+            split = newtonDivide(x, power, radixReciprocal(radix, k));
+            split[0] = stripLeadingZeros(split[0], split[0].length);
+        } else {
+            split = divideMagnitudes(x, power);
+        }
+        writeMagnitude(split[0], out, radix, padDigits - lowDigits);
+        writeMagnitude(split[1], out, radix, lowDigits);
+    }
+
+    /**
+     * Writes a small magnitude by repeatedly dividing off a chunk of digits.
+     */
+    private static void writeSmallMagnitude(int[] x, Appendable out, int radix, int padDigits) throws IOException {
+        int[] work = x.clone();
+        int length = work.length;
+        while (length > 0 && work[length - 1] == 0) {
+            length--;
+        }
+        char[] digits = new char[Math.max(padDigits, 32 * length)];
+        int position = digits.length;
+        while (length > 0) {
+            int chunk = divideInPlace(work, length, CHUNK_VALUE[radix]);
+            while (length > 0 && work[length - 1] == 0) {
+                length--;
+            }
+            int stop = length > 0 ? position - CHUNK_DIGITS[radix] : position;
+            do {
+                digits[--position] = Character.forDigit(chunk % radix, radix);
+                chunk /= radix;
+            } while (chunk != 0 || position > stop);
+        }
+        while (digits.length - position < padDigits) {
+            digits[--position] = '0';
+        }
+        for (int i = position; i < digits.length; i++) {
+            out.append(digits[i]);
+        }
+    }
+
+    /**
+     * Returns the number of bytes writeTo(WritableByteChannel) writes for this GinormInt.
+     */
+    public long serializedSize() {
+        return SERIALIZED_HEADER_BYTES + 4L * limbs().length;
+    }
+
+    /**
+     * Writes this GinormInt to a channel in the binary format: a sign byte,
+     * the limb count and the raw limbs, all little-endian.
+     *
+     * @param  out channel to write to
+     * @throws IOException if the channel throws while writing
+     */
+    public void writeTo(WritableByteChannel out) throws IOException {
+        int[] limbs = limbs();
+        int limbsPerBuffer = Math.min(limbs.length, CHANNEL_BUFFER_LIMBS);
+        ByteBuffer buffer = ByteBuffer.allocate(SERIALIZED_HEADER_BYTES + 4 * limbsPerBuffer)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte)(negative ? 1 : 0)).putInt(limbs.length);
+        int written = 0;
+        do {
+            int count = Math.min(limbs.length - written, limbsPerBuffer);
+            buffer.asIntBuffer().put(limbs, written, count);
+            buffer.position(buffer.position() + 4 * count);
+            written += count;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        } while (written < limbs.length);
+    }
+
+    /**
+     * Writes this GinormInt into a buffer in the binary format, starting at
+     * its position, regardless of the buffer's byte order.
+     *
+     * @param  out buffer with at least serializedSize() bytes remaining
+     */
+    public void writeTo(ByteBuffer out) {
+        int[] limbs = limbs();
+        ByteBuffer view = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        view.put((byte)(negative ? 1 : 0)).putInt(limbs.length);
+        view.asIntBuffer().put(limbs);
+        out.position(out.position() + (int)serializedSize());
+    }
+
+    /**
+     * Reads one GinormInt in the binary format from a channel. The limb array
+     * grows as limbs actually arrive instead of being sized from the header,
+     * so a corrupted limb count ends in an EOFException rather than an
+     * enormous allocation; seekable channels are checked against their size
+     * up front.
+     *
+     * @param  in channel to read from
+     * @return the GinormInt read
+     * @throws EOFException if the channel ends before a whole value is read
+     * @throws IOException if the channel throws or the data is not a GinormInt
+     */
+    public static GinormInt readFrom(ReadableByteChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SERIALIZED_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(in, header);
+        header.flip();
+        boolean isNegative = readSign(header.get());
+        int total = readLimbCount(header.getInt());
+        if (in instanceof SeekableByteChannel) {
+            SeekableByteChannel seekable = (SeekableByteChannel)in;
+            if ((seekable.size() - seekable.position()) / 4 < total) {
+                throw new EOFException("Sorry, the channel ends in the middle of a GinormInt.");
+            }
+        }
+        int[] limbs = new int[Math.min(total, CHANNEL_BUFFER_LIMBS)];
+        ByteBuffer buffer = ByteBuffer.allocate(4 * limbs.length).order(ByteOrder.LITTLE_ENDIAN);
+        int read = 0;
+        while (read < total) {
+            int count = Math.min(total - read, CHANNEL_BUFFER_LIMBS);
+            if (read + count > limbs.length) {
+                limbs = Arrays.copyOf(limbs, (int)Math.min(total, Math.max(read + count, 2L * limbs.length)));
+            }
+            buffer.clear().limit(4 * count);
+            readFully(in, buffer);
+            buffer.flip();
+            buffer.asIntBuffer().get(limbs, read, count);
+            read += count;
+        }
+        return new GinormInt(limbs, isNegative);
+    }
+
+    /**
+     * Reads one GinormInt in the binary format from a buffer, starting at its
+     * position and regardless of its byte order, and advances the position
+     * past it. The limbs are copied straight from the buffer into the new
+     * GinormInt, so a memory-mapped buffer is never copied as a whole.
+     *
+     * @param  in buffer to read from
+     * @return the GinormInt read
+     * @throws IOException if the buffer ends early or the data is not a GinormInt
+     */
+    public static GinormInt readFrom(ByteBuffer in) throws IOException {
+        if (in.remaining() < SERIALIZED_HEADER_BYTES) {
+            throw new EOFException("Sorry, the buffer ends in the middle of a GinormInt.");
+        }
+        ByteBuffer view = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        boolean isNegative = readSign(view.get());
+        int count = readLimbCount(view.getInt());
+        if (view.remaining() / 4 < count) {
+            throw new EOFException("Sorry, the buffer ends in the middle of a GinormInt.");
+        }
+        int[] limbs = new int[count];
+        view.asIntBuffer().get(limbs);
+        in.position(view.position() + 4 * count);
+        return new GinormInt(limbs, isNegative);
+    }
+
+    /**
+     * Fills the remaining space of buffer from the channel.
+     */
+    private static void readFully(ReadableByteChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new EOFException("Sorry, the channel ends in the middle of a GinormInt.");
+            }
+        }
+    }
+
+    /**
+     * Validates and decodes the sign byte of the binary format.
+     */
+    private static boolean readSign(byte sign) throws IOException {
+        if (sign != 0 && sign != 1) {
+            throw new StreamCorruptedException("Sorry, " + sign + " is not a valid GinormInt sign byte.");
+        }
+        return sign == 1;
+    }
+
+    /**
+     * Validates the limb count of the binary format.
+     */
+    private static int readLimbCount(int count) throws IOException {
+        if (count < 0) {
+            throw new StreamCorruptedException("Sorry, " + count + " is not a valid GinormInt limb count.");
+        }
+        return count;
+    }
+
+    /**
+     * Method to return the string representation of this GinormInt.
+     *
+     * @return String representation
+     */
+    @Override
+    public String toString() {
+        return toString(10);
+    }
+
+    /**
+     * Compares two magnitudes.
+     *
+     * @return 1 if a is larger, 0 if equal, -1 if it's smaller
+     */
+    private static int compareMagnitudes(int[] a, int[] b) {
+        if (a.length != b.length) {
+            return a.length < b.length ? -1 : 1;
+        }
+        for (int i = a.length - 1; i >= 0; i--) {
+            if (a[i] != b[i]) {
+                return (a[i] & LONG_MASK) < (b[i] & LONG_MASK) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds two magnitudes into a new array one limb longer than the longer operand.
+     */
+    private static int[] addMagnitudes(int[] a, int[] b) {
+        if (a.length < b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] sum = new int[a.length + 1];
+        long carry = 0;
+        int i = 0;
+        for (; i < b.length; i++) {
+            carry += (a[i] & LONG_MASK) + (b[i] & LONG_MASK);
+            sum[i] = (int)carry;
+            carry >>>= 32;
+        }
+        for (; i < a.length; i++) {
+            carry += a[i] & LONG_MASK;
+            sum[i] = (int)carry;
+            carry >>>= 32;
+        }
+        sum[i] = (int)carry;
+        return sum;
+    }
+
+    /**
+     * Subtracts magnitude b from magnitude a, which must be at least as large.
+     */
+    private static int[] subtractMagnitudes(int[] a, int[] b) {
+        int[] difference = new int[a.length];
+        long borrow = 0;
+        int i = 0;
+        for (; i < b.length; i++) {
+            borrow = (a[i] & LONG_MASK) - (b[i] & LONG_MASK) + borrow;
+            difference[i] = (int)borrow;
+            borrow >>= 32;
+        }
+        for (; i < a.length; i++) {
+            borrow = (a[i] & LONG_MASK) + borrow;
+            difference[i] = (int)borrow;
+            borrow >>= 32;
+        }
+        return difference;
+    }
+
+    /**
+     * Multiplies two magnitudes, picking schoolbook, Karatsuba, Toom-3 or NTT
+     * by the size of the shorter operand. Products too long for one transform
+     * go through Toom-3 until the pieces fit. Very unbalanced operands are
+     * multiplied in pieces the size of the shorter one so the fast algorithms
+     * see balanced halves. Passing the same array twice squares it, which the
+     * NTT does with one forward transform instead of two. Package-private so
+     * MutableGinormInt can share the multiplication engine.
+     */
+    static int[] multiplyMagnitudes(int[] a, int[] b) {
+        return multiplyMagnitudes(a, b, false);
+    }
+
+    /**
+     * Multiplies two magnitudes. When parallel is true, the current thread
+     * must be a fork-join worker, and the sub-products of operands at least
+     * parallelThreshold limbs long are computed as separate tasks.
+     */
+    private static int[] multiplyMagnitudes(int[] a, int[] b, boolean parallel) {
+        if (a.length < b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        if (b.length == 0) {
+            return new int[0];
+        }
+        if (b.length < karatsubaThreshold) {
+            return schoolbookMultiply(a, b);
+        }
+        parallel = parallel && b.length >= parallelThreshold;
+        if (b.length >= nttThreshold && a.length + b.length <= NumberTheoreticTransform.MAX_LIMBS) {
+            return NumberTheoreticTransform.multiply(a, b, parallel);
+        }
+        if (b.length <= (a.length + 1) / 2) {
+            return multiplyUnbalanced(a, b, parallel);
+        }
+        if (b.length < toomCookThreshold) {
+            return karatsubaMultiply(a, b, parallel);
+        }
+        return toomCookMultiply(a, b, parallel);
+    }
+
+    /**
+     * Computes the products lefts[i] * rights[i], forking one task per product
+     * when parallel is true.
+     */
+    private static int[][] multiplyAll(int[][] lefts, int[][] rights, boolean parallel) {
+        int[][] products = new int[lefts.length][];
+        if (parallel) {
+            MultiplyTask[] tasks = new MultiplyTask[lefts.length];
+            for (int i = 0; i < tasks.length; i++) {
+                tasks[i] = new MultiplyTask(lefts[i], rights[i]);
+            }
+            ForkJoinTask.invokeAll(tasks);
+            for (int i = 0; i < tasks.length; i++) {
+                products[i] = tasks[i].join();
+            }
+        } else {
+            for (int i = 0; i < products.length; i++) {
+                products[i] = multiplyMagnitudes(lefts[i], rights[i], false);
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Multiplies a long magnitude by a much shorter one, one piece of the long
+     * operand at a time.
+     */
+    private static int[] multiplyUnbalanced(int[] a, int[] b, boolean parallel) {
+        int pieces = (a.length + b.length - 1) / b.length;
+        int[][] lefts = new int[pieces][];
+        int[][] rights = new int[pieces][];
+        for (int i = 0; i < pieces; i++) {
+            lefts[i] = slice(a, i * b.length, (i + 1) * b.length);
+            rights[i] = b;
+        }
+        int[][] partials = multiplyAll(lefts, rights, parallel);
+        int[] product = new int[a.length + b.length];
+        for (int i = 0; i < pieces; i++) {
+            addInto(product, i * b.length, partials[i]);
+        }
+        return product;
+    }
+
+    /**
+     * Karatsuba multiplication: three half-size products instead of four.
+     * The shorter operand b must be longer than half of a.
+     */
+    private static int[] karatsubaMultiply(int[] a, int[] b, boolean parallel) {
+        int half = (a.length + 1) / 2;
+        int[] a0 = slice(a, 0, half);
+        int[] a1 = slice(a, half, a.length);
+        int[] b0 = slice(b, 0, half);
+        int[] b1 = slice(b, half, b.length);
+
+        int[][] z = multiplyAll(
+                new int[][] {a0, a1, addMagnitudes(a0, a1)},
+                new int[][] {b0, b1, addMagnitudes(b0, b1)}, parallel);
+        int[] z0 = z[0];
+        int[] z2 = z[1];
+        int[] z1 = subtractMagnitudes(subtractMagnitudes(z[2], z0), z2);
+
+        int[] product = new int[a.length + b.length];
+        System.arraycopy(z0, 0, product, 0, z0.length);
+        addInto(product, half, z1);
+        addInto(product, 2 * half, z2);
+        return product;
+    }
+
+    /**
+     * Toom-3 multiplication: splits both operands into thirds, evaluates at
+     * 0, 1, -1, 2 and infinity, and interpolates with Bodrato's sequence.
+     * The interpolation goes negative, so it is done on signed GinormInts.
+     */
+    private static int[] toomCookMultiply(int[] a, int[] b, boolean parallel) {
+        int k = (a.length + 2) / 3;
+        GinormInt a0 = new GinormInt(slice(a, 0, k), false);
+        GinormInt a1 = new GinormInt(slice(a, k, 2 * k), false);
+        GinormInt a2 = new GinormInt(slice(a, 2 * k, a.length), false);
+        GinormInt b0 = new GinormInt(slice(b, 0, k), false);
+        GinormInt b1 = new GinormInt(slice(b, k, 2 * k), false);
+        GinormInt b2 = new GinormInt(slice(b, 2 * k, b.length), false);
+
+        GinormInt da1 = a2.plus(a0);
+        GinormInt db1 = b2.plus(b0);
+        GinormInt dam1 = da1.minus(a1);
+        GinormInt dbm1 = db1.minus(b1);
+        da1 = da1.plus(a1);
+        db1 = db1.plus(b1);
+        GinormInt da2 = da1.plus(a2).shiftedLeft(1).minus(a0);
+        GinormInt db2 = db1.plus(b2).shiftedLeft(1).minus(b0);
+
+        int[][] v = multiplyAll(
+                new int[][] {a0.limbs(), dam1.limbs(), da1.limbs(), da2.limbs(), a2.limbs()},
+                new int[][] {b0.limbs(), dbm1.limbs(), db1.limbs(), db2.limbs(), b2.limbs()}, parallel);
+        GinormInt v0 = new GinormInt(v[0], false);
+        GinormInt vm1 = new GinormInt(v[1], dam1.negative != dbm1.negative);
+        GinormInt v1 = new GinormInt(v[2], false);
+        GinormInt v2 = new GinormInt(v[3], da2.negative != db2.negative);
+        GinormInt vinf = new GinormInt(v[4], false);
+
+        GinormInt t2 = v2.minus(vm1).exactDivideBy3();
+        GinormInt tm1 = v1.minus(vm1).exactHalf();
+        GinormInt t1 = v1.minus(v0);
+        t2 = t2.minus(t1).exactHalf();
+        t1 = t1.minus(tm1).minus(vinf);
+        t2 = t2.minus(vinf.shiftedLeft(1));
+        tm1 = tm1.minus(t2);
+
+        int[] product = new int[a.length + b.length + 1];
+        addInto(product, 0, v0.limbs());
+        addInto(product, k, tm1.limbs());
+        addInto(product, 2 * k, t1.limbs());
+        addInto(product, 3 * k, t2.limbs());
+        addInto(product, 4 * k, vinf.limbs());
+        return product;
+    }
+
+    /**
+     * A multiplication run as a fork-join task, which forks its own
+     * sub-products while they are above the parallel threshold.
+     */
+    private static final class MultiplyTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a;
+        private final int[] b;
+
+        MultiplyTask(int[] a, int[] b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        protected int[] compute() {
+            return multiplyMagnitudes(a, b, true);
+        }
+    }
+
+    /**
+     * Multiplies the factors from through to - 1 of a product split into
+     * leaves of up to TREE_LEAF_SIZE factors. The bounds are longs so a range
+     * can run through Integer.MAX_VALUE.
+     */
+    private interface RangeProduct {
+        GinormInt of(long from, long to);
+    }
+
+    /**
+     * Returns the product of a range of factors, multiplying halves of the
+     * range recursively so both operands of each multiplication have
+     * similar sizes.
+     */
+    private static GinormInt productTree(long from, long to, RangeProduct leaf, boolean parallel) {
+        ProductTreeTask task = new ProductTreeTask(from, to, leaf, parallel);
+        return parallel ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+    }
+
+    /**
+     * A product tree over a range of factors, which forks its left half while
+     * it is running in parallel and the range is large.
+     */
+    private static final class ProductTreeTask extends RecursiveTask<GinormInt> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final RangeProduct leaf;
+        private final boolean parallel;
+
+        ProductTreeTask(long from, long to, RangeProduct leaf, boolean parallel) {
+            this.from = from;
+            this.to = to;
+            this.leaf = leaf;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected GinormInt compute() {
+            if (to - from <= TREE_LEAF_SIZE) {
+                return leaf.of(from, to);
+            }
+            long mid = (from + to) >>> 1;
+            ProductTreeTask left = new ProductTreeTask(from, mid, leaf, parallel);
+            ProductTreeTask right = new ProductTreeTask(mid, to, leaf, parallel);
+            if (parallel && to - from >= TREE_FORK_SIZE) {
+                left.fork();
+                GinormInt high = right.compute();
+                return multiply(left.join(), high, true);
+            }
+            return multiply(left.compute(), right.compute(), parallel);
+        }
+    }
+
+    /**
+     * Sums a range of series terms by binary splitting, forking the left
+     * half while running in parallel and the range is large.
+     */
+    private static final class BinarySplitTask extends RecursiveTask<GinormInt[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Series series;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        BinarySplitTask(Series series, int from, int to, boolean parallel) {
+            this.series = series;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected GinormInt[] compute() {
+            if (to - from == 1) {
+                GinormInt p = series.p(from);
+                return new GinormInt[] {p, series.q(from), series.a(from).times(p)};
+            }
+            int mid = (from + to) >>> 1;
+            BinarySplitTask leftTask = new BinarySplitTask(series, from, mid, parallel);
+            BinarySplitTask rightTask = new BinarySplitTask(series, mid, to, parallel);
+            GinormInt[] left;
+            GinormInt[] right;
+            if (parallel && to - from >= TREE_FORK_SIZE) {
+                leftTask.fork();
+                right = rightTask.compute();
+                left = leftTask.join();
+            } else {
+                left = leftTask.compute();
+                right = rightTask.compute();
+            }
+            return new GinormInt[] {
+                multiply(left[0], right[0], parallel),
+                multiply(left[1], right[1], parallel),
+                multiply(left[2], right[1], parallel).plus(multiply(left[0], right[2], parallel))
+            };
+        }
+    }
+
+    /**
+     * Returns x * y, forking the sub-products of large operands when parallel
+     * is true, in which case the current thread must be a fork-join worker.
+     */
+    private static GinormInt multiply(GinormInt x, GinormInt y, boolean parallel) {
+        if (!parallel || x.mag == null || y.mag == null) {
+            return x.times(y);
+        }
+        return new GinormInt(multiplyMagnitudes(x.mag, y.mag, true), x.negative != y.negative);
+    }
+
+    /**
+     * Returns the product of the odd parts of the ints from through to - 1,
+     * which must be positive. The bounds are longs so the range can run
+     * through Integer.MAX_VALUE. Each leaf packs as many odd parts as fit
+     * into a long before multiplying them in.
+     */
+    private static GinormInt oddRangeProduct(long from, long to, boolean parallel) {
+        if (from >= to) {
+            return ONE;
+        }
+        return productTree(from, to, (low, high) -> {
+            GinormInt result = ONE;
+            long packed = 1;
+            for (long i = low; i < high; i++) {
+                long odd = i >>> Long.numberOfTrailingZeros(i);
+                if (packed > Long.MAX_VALUE / odd) {
+                    result = result.times(valueOf(packed));
+                    packed = 1;
+                }
+                packed *= odd;
+            }
+            return result.times(valueOf(packed));
+        }, parallel);
+    }
+
+    /**
+     * Returns the exponent of 2 in n!, which is n minus the number of one
+     * bits in n.
+     */
+    private static int twosInFactorial(int n) {
+        return n - Integer.bitCount(n);
+    }
+
+    /**
+     * Returns this GinormInt multiplied by 2^bits, for small internal shifts.
+     */
+    private GinormInt shiftedLeft(int bits) {
+        return new GinormInt(shiftLeftMagnitude(limbs(), bits), negative);
+    }
+
+    /**
+     * Returns this GinormInt divided by 2^bits, rounding toward zero.
+     */
+    private GinormInt shiftedRight(int bits) {
+        return new GinormInt(shiftRightMagnitude(limbs(), bits), negative);
+    }
+
+    /**
+     * Returns this GinormInt divided by 2, which must divide it exactly.
+     */
+    private GinormInt exactHalf() {
+        return new GinormInt(shiftRightMagnitude(limbs(), 1), negative);
+    }
+
+    /**
+     * Returns this GinormInt divided by 3, which must divide it exactly.
+     */
+    private GinormInt exactDivideBy3() {
+        int[] quotient = limbs().clone();
+        divideInPlace(quotient, quotient.length, 3);
+        return new GinormInt(quotient, negative);
+    }
+
+    /**
+     * Divides magnitude a by nonzero magnitude b, picking single-limb
+     * division, Algorithm D or Newton reciprocal division by the size of b.
+     *
+     * @return array holding the quotient magnitude, then the remainder
+     *         magnitude, both without leading zero limbs
+     */
+    private static int[][] divideMagnitudes(int[] a, int[] b) {
+        if (compareMagnitudes(a, b) < 0) {
+            return new int[][] {new int[0], a};
+        }
+        if (b.length == 1) {
+            int[] quotient = a.clone();
+            int remainder = divideByLimb(quotient, b[0]);
+            return new int[][] {
+                stripLeadingZeros(quotient, quotient.length),
+                stripLeadingZeros(new int[] {remainder}, 1)
+            };
+        }
+        int[][] result = b.length < newtonThreshold ? knuthDivide(a, b) : newtonDivide(a, b);
+        result[0] = stripLeadingZeros(result[0], result[0].length);
+        result[1] = stripLeadingZeros(result[1], result[1].length);
+        return result;
+    }
+
+    /**
+     * Divides x in place by an unsigned limb.
+     *
+     * @return the remainder
+     */
+    private static int divideByLimb(int[] x, int divisor) {
+        long d = divisor & LONG_MASK;
+        long remainder = 0;
+        for (int i = x.length - 1; i >= 0; i--) {
+            long current = (remainder << 32) | (x[i] & LONG_MASK);
+            x[i] = (int)Long.divideUnsigned(current, d);
+            remainder = Long.remainderUnsigned(current, d);
+        }
+        return (int)remainder;
+    }
+
+    /**
+     * Knuth's Algorithm D (TAOCP 4.3.1): long division one limb of quotient
+     * at a time, estimating each quotient limb from the top limbs of the
+     * divisor after normalizing it so its top bit is set. b must have at least
+     * two limbs and a must be at least as large as b.
+     */
+    private static int[][] knuthDivide(int[] a, int[] b) {
+        int n = b.length;
+        int m = a.length - n;
+        int shift = Integer.numberOfLeadingZeros(b[n - 1]);
+        int[] vn = new int[n];
+        int[] un = new int[a.length + 1];
+        for (int i = n - 1; i > 0; i--) {
+            vn[i] = shift == 0 ? b[i] : (b[i] << shift) | (b[i - 1] >>> (32 - shift));
+        }
+        vn[0] = b[0] << shift;
+        un[a.length] = shift == 0 ? 0 : a[a.length - 1] >>> (32 - shift);
+        for (int i = a.length - 1; i > 0; i--) {
+            un[i] = shift == 0 ? a[i] : (a[i] << shift) | (a[i - 1] >>> (32 - shift));
+        }
+        un[0] = a[0] << shift;
+
+        long top = vn[n - 1] & LONG_MASK;
+        long second = vn[n - 2] & LONG_MASK;
+        int[] quotient = new int[m + 1];
+        for (int j = m; j >= 0; j--) {
+            long numerator = ((un[j + n] & LONG_MASK) << 32) | (un[j + n - 1] & LONG_MASK);
+            long qhat = Long.divideUnsigned(numerator, top);
+            long rhat = Long.remainderUnsigned(numerator, top);
+            while (qhat > LONG_MASK
+                    || Long.compareUnsigned(qhat * second, (rhat << 32) | (un[j + n - 2] & LONG_MASK)) > 0) {
+                qhat--;
+                rhat += top;
+                if (rhat > LONG_MASK) {
+                    break;
+                }
+            }
+
+            long borrow = 0;
+            long t;
+            for (int i = 0; i < n; i++) {
+                long p = qhat * (vn[i] & LONG_MASK);
+                t = (un[i + j] & LONG_MASK) - borrow - (p & LONG_MASK);
+                un[i + j] = (int)t;
+                borrow = (p >>> 32) - (t >> 32);
+            }
+            t = (un[j + n] & LONG_MASK) - borrow;
+            un[j + n] = (int)t;
+
+            if (t < 0) {
+                qhat--;
+                long carry = 0;
+                for (int i = 0; i < n; i++) {
+                    carry += (un[i + j] & LONG_MASK) + (vn[i] & LONG_MASK);
+                    un[i + j] = (int)carry;
+                    carry >>>= 32;
+                }
+                un[j + n] += (int)carry;
+            }
+            quotient[j] = (int)qhat;
+        }
+
+        int[] remainder = new int[n];
+        for (int i = 0; i < n; i++) {
+            remainder[i] = shift == 0 ? un[i] : (un[i] >>> shift) | (un[i + 1] << (32 - shift));
+        }
+        return new int[][] {quotient, remainder};
+    }
+
+    /**
+     * Division by multiplying with a reciprocal of b, so it runs at the speed
+     * of the fast multiplication. The top 2 * b.length limbs of the dividend
+     * are divided first, then the rest b.length limbs at a time, so no step
+     * divides more than 2 * b.length limbs by b.
+     */
+    private static int[][] newtonDivide(int[] a, int[] b) {
+        return newtonDivide(a, b, reciprocal(new GinormInt(b, false), b.length));
+    }
+
+    /**
+     * Newton division of a by b using an already computed reciprocal,
+     * floor(2^(64 * b.length) / b), so repeated divisions by the same divisor
+     * skip the reciprocal computation.
+     */
+    private static int[][] newtonDivide(int[] a, int[] b, GinormInt reciprocal) {
+        int n = b.length;
+        GinormInt divisor = new GinormInt(b, false);
+        int blocks = Math.max(1, (a.length + n - 1) / n - 1);
+        int[] quotient = new int[a.length + 1];
+        GinormInt remainder = ZERO;
+        for (int block = blocks - 1; block >= 0; block--) {
+            int end = block == blocks - 1 ? a.length : (block + 1) * n;
+            GinormInt current = remainder.shiftedLeft(32 * n)
+                    .plus(new GinormInt(slice(a, block * n, end), false));
+            GinormInt q = current.times(reciprocal).shiftedRight(64 * n);
+            remainder = current.minus(q.times(divisor));
+            while (remainder.negative) {
+                q = q.minus(ONE);
+                remainder = remainder.plus(divisor);
+            }
+            while (compareMagnitudes(remainder.limbs(), b) >= 0) {
+                q = q.plus(ONE);
+                remainder = remainder.minus(divisor);
+            }
+            System.arraycopy(q.limbs(), 0, quotient, block * n, q.limbs().length);
+        }
+        return new int[][] {quotient, remainder.limbs()};
+    }
+
+    /**
+     * Returns floor(2^(64n) / b) for an n-limb b. Below the Newton threshold
+     * it is computed with Algorithm D; otherwise the reciprocal of the top
+     * half of b (plus two guard limbs) is refined by one Newton step,
+     * x + x * (2^(64n) - b * x) / 2^(64n), which doubles its precision, and
+     * then corrected to the exact floor.
+     */
+    private static GinormInt reciprocal(GinormInt b, int n) {
+        GinormInt power = new GinormInt(shiftLeftMagnitude(new int[] {1}, 64 * n), false);
+        if (n < newtonThreshold) {
+            return new GinormInt(knuthDivide(power.limbs(), b.limbs())[0], false);
+        }
+        int h = n / 2 + 2;
+        GinormInt top = b.shiftedRight(32 * (n - h));
+        GinormInt x = reciprocal(top, h).shiftedLeft(32 * (n - h));
+        GinormInt error = power.minus(b.times(x));
+        x = x.plus(x.times(error).shiftedRight(64 * n));
+
+        error = power.minus(b.times(x));
+        while (error.negative) {
+            x = x.minus(ONE);
+            error = error.plus(b);
+        }
+        while (error.compareTo(b) >= 0) {
+            x = x.plus(ONE);
+            error = error.minus(b);
+        }
+        return x;
+    }
+
+    /**
+     * Sliding-window exponentiation modulo an odd modulus in Montgomery form,
+     * on 62-bit limbs with R = 2^(62 * limbs). The window squarings, which do
+     * most of the work, go through montgomerySquare. base must already be
+     * reduced.
+     */
+    private static int[] montgomeryModPow(int[] base, int[] exponent, int[] modulus) {
+        int n = (bitLength(modulus) + MONTGOMERY_BITS - 1) / MONTGOMERY_BITS;
+        long[] mod = toMontgomeryLimbs(modulus, n);
+        long inverse = -inverseModWord(mod[0]) & MONTGOMERY_MASK;
+        long[] work = new long[2 * n + 1];
+        long[] unit = new long[n];
+        unit[0] = 1;
+        long[] one = toMontgomeryLimbs(divideMagnitudes(shiftLeftMagnitude(new int[] {1}, MONTGOMERY_BITS * n), modulus)[1], n);
+        long[] baseMont = toMontgomeryLimbs(divideMagnitudes(shiftLeftMagnitude(base, MONTGOMERY_BITS * n), modulus)[1], n);
+
+        int window = windowSize(bitLength(exponent));
+        long[][] oddPowers = new long[1 << (window - 1)][];
+        oddPowers[0] = baseMont;
+        long[] baseSquared = new long[n];
+        montgomerySquare(baseMont, mod, inverse, work, baseSquared);
+        for (int i = 1; i < oddPowers.length; i++) {
+            oddPowers[i] = new long[n];
+            montgomeryMultiply(oddPowers[i - 1], baseSquared, mod, inverse, work, oddPowers[i]);
+        }
+
+        long[] result = one;
+        long[] spare = new long[n];
+        int bit = bitLength(exponent) - 1;
+        while (bit >= 0) {
+            int low = bit;
+            int value = 1;
+            if (testBit(exponent, bit)) {
+                low = Math.max(bit - window + 1, 0);
+                while (!testBit(exponent, low)) {
+                    low++;
+                }
+                value = 0;
+                for (int i = bit; i >= low; i--) {
+                    value = (value << 1) | (testBit(exponent, i) ? 1 : 0);
+                }
+            }
+            for (int i = bit; i >= low; i--) {
+                montgomerySquare(result, mod, inverse, work, spare);
+                long[] swap = result;
+                result = spare;
+                spare = swap;
+            }
+            if (testBit(exponent, bit)) {
+                montgomeryMultiply(result, oddPowers[value >>> 1], mod, inverse, work, spare);
+                long[] swap = result;
+                result = spare;
+                spare = swap;
+            }
+            bit = low - 1;
+        }
+        montgomeryMultiply(result, unit, mod, inverse, work, spare);
+        return fromMontgomeryLimbs(spare);
+    }
+
+    /**
+     * Sliding-window exponentiation modulo an even modulus, reducing each
+     * product with a division. base must already be reduced.
+     */
+    private static int[] plainModPow(int[] base, int[] exponent, int[] modulus) {
+        int window = windowSize(bitLength(exponent));
+        int[][] oddPowers = new int[1 << (window - 1)][];
+        oddPowers[0] = base;
+        int[] baseSquared = divideMagnitudes(multiplyMagnitudes(base, base), modulus)[1];
+        for (int i = 1; i < oddPowers.length; i++) {
+            oddPowers[i] = divideMagnitudes(multiplyMagnitudes(oddPowers[i - 1], baseSquared), modulus)[1];
+        }
+
+        int[] result = new int[] {1};
+        int bit = bitLength(exponent) - 1;
+        while (bit >= 0) {
+            if (!testBit(exponent, bit)) {
+                result = divideMagnitudes(multiplyMagnitudes(result, result), modulus)[1];
+                bit--;
+                continue;
+            }
+            int low = Math.max(bit - window + 1, 0);
+            while (!testBit(exponent, low)) {
+                low++;
+            }
+            int value = 0;
+            for (int i = bit; i >= low; i--) {
+                result = divideMagnitudes(multiplyMagnitudes(result, result), modulus)[1];
+                value = (value << 1) | (testBit(exponent, i) ? 1 : 0);
+            }
+            result = divideMagnitudes(multiplyMagnitudes(result, oddPowers[value >>> 1]), modulus)[1];
+            bit = low - 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the sliding window width for an exponent of the given bit
+     * length, trading the cost of the odd-power table against the number of
+     * multiplications saved.
+     */
+    private static int windowSize(int exponentBits) {
+        int[] limits = {7, 25, 81, 241, 673, 1793};
+        int window = 1;
+        while (window <= limits.length && exponentBits > limits[window - 1]) {
+            window++;
+        }
+        return window;
+    }
+
+    /**
+     * Writes the Montgomery product a * b / R mod modulus into out, on 62-bit
+     * limbs, by coarsely integrated operand scanning (CIOS): each limb of b
+     * is multiplied in and, in the same pass, the bottom limb is cleared by
+     * adding a multiple of the modulus. The two products in each step keep
+     * separate carries. a and b must have modulus.length limbs and be below
+     * the modulus; inverse is -modulus^-1 mod 2^62 and work must hold
+     * modulus.length + 1 limbs. out may not be a or b.
+     */
+    private static void montgomeryMultiply(long[] a, long[] b, long[] modulus, long inverse, long[] work, long[] out) {
+        int n = modulus.length;
+        Arrays.fill(work, 0, n + 1, 0);
+        for (int i = 0; i < n; i++) {
+            long bi = b[i];
+            long low = a[0] * bi;
+            long t = (low & MONTGOMERY_MASK) + work[0];
+            long productCarry = (Math.multiplyHigh(a[0], bi) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+            long m = (t * inverse) & MONTGOMERY_MASK;
+            low = m * modulus[0];
+            t = (low & MONTGOMERY_MASK) + (t & MONTGOMERY_MASK);
+            long reduceCarry = (Math.multiplyHigh(m, modulus[0]) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+            for (int j = 1; j < n; j++) {
+                low = a[j] * bi;
+                t = (low & MONTGOMERY_MASK) + work[j] + productCarry;
+                productCarry = (Math.multiplyHigh(a[j], bi) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+                t &= MONTGOMERY_MASK;
+                low = m * modulus[j];
+                t += (low & MONTGOMERY_MASK) + reduceCarry;
+                reduceCarry = (Math.multiplyHigh(m, modulus[j]) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+                work[j - 1] = t & MONTGOMERY_MASK;
+            }
+            t = work[n] + productCarry + reduceCarry;
+            work[n - 1] = t & MONTGOMERY_MASK;
+            work[n] = t >>> MONTGOMERY_BITS;
+        }
+        subtractModulusOnce(work, 0, work[n], modulus, out);
+    }
+
+    /**
+     * Writes the Montgomery square a * a / R mod modulus into out, on 62-bit
+     * limbs. The full square is built from each cross product a[i] * a[j],
+     * i < j, taken once and doubled, plus the diagonal, which needs about
+     * half the limb multiplications of a general product; it is then reduced
+     * a limb at a time. a must have modulus.length limbs and be below the
+     * modulus; inverse is -modulus^-1 mod 2^62 and work must hold
+     * 2 * modulus.length + 1 limbs. out may not be a.
+     */
+    private static void montgomerySquare(long[] a, long[] modulus, long inverse, long[] work, long[] out) {
+        int n = modulus.length;
+        Arrays.fill(work, 0, 2 * n + 1, 0);
+        for (int i = 0; i < n - 1; i++) {
+            long ai = a[i];
+            long carry = 0;
+            for (int j = i + 1; j < n; j++) {
+                long low = ai * a[j];
+                long t = (low & MONTGOMERY_MASK) + work[i + j] + carry;
+                work[i + j] = t & MONTGOMERY_MASK;
+                carry = (Math.multiplyHigh(ai, a[j]) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+            }
+            work[i + n] = carry;
+        }
+        long previous = 0;
+        for (int k = 0; k < 2 * n; k++) {
+            long limb = work[k];
+            work[k] = (limb << 1 & MONTGOMERY_MASK) | (previous >>> (MONTGOMERY_BITS - 1));
+            previous = limb;
+        }
+        long carry = 0;
+        for (int i = 0; i < n; i++) {
+            long low = a[i] * a[i];
+            long t = work[2 * i] + (low & MONTGOMERY_MASK) + carry;
+            work[2 * i] = t & MONTGOMERY_MASK;
+            t = work[2 * i + 1] + (Math.multiplyHigh(a[i], a[i]) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+            work[2 * i + 1] = t & MONTGOMERY_MASK;
+            carry = t >>> MONTGOMERY_BITS;
+        }
+
+        long top = 0;
+        for (int i = 0; i < n; i++) {
+            long m = (work[i] * inverse) & MONTGOMERY_MASK;
+            carry = 0;
+            for (int j = 0; j < n; j++) {
+                long low = m * modulus[j];
+                long t = (low & MONTGOMERY_MASK) + work[i + j] + carry;
+                work[i + j] = t & MONTGOMERY_MASK;
+                carry = (Math.multiplyHigh(m, modulus[j]) << 2 | low >>> MONTGOMERY_BITS) + (t >>> MONTGOMERY_BITS);
+            }
+            long t = work[i + n] + carry + top;
+            work[i + n] = t & MONTGOMERY_MASK;
+            top = t >>> MONTGOMERY_BITS;
+        }
+        subtractModulusOnce(work, n, top, modulus, out);
+    }
+
+    /**
+     * Copies the modulus.length limbs of work starting at from into out,
+     * subtracting the modulus once if the value, with high as the limb above
+     * them, is not below it. The value must be below twice the modulus.
+     */
+    private static void subtractModulusOnce(long[] work, int from, long high, long[] modulus, long[] out) {
+        int n = modulus.length;
+        System.arraycopy(work, from, out, 0, n);
+        if (high == 0) {
+            int i = n - 1;
+            while (i >= 0 && out[i] == modulus[i]) {
+                i--;
+            }
+            if (i >= 0 && out[i] < modulus[i]) {
+                return;
+            }
+        }
+        long borrow = 0;
+        for (int j = 0; j < n; j++) {
+            long difference = out[j] - modulus[j] - borrow;
+            out[j] = difference & MONTGOMERY_MASK;
+            borrow = difference >>> 63;
+        }
+    }
+
+    /**
+     * Returns the inverse of an odd word modulo 2^64 by Newton iteration,
+     * each step doubling the number of correct low bits.
+     */
+    private static long inverseModWord(long x) {
+        long inverse = x;
+        for (int i = 0; i < 6; i++) {
+            inverse *= 2 - x * inverse;
+        }
+        return inverse;
+    }
+
+    /**
+     * Packs magnitude x into exactly n 62-bit limbs, least significant first.
+     * x must fit in 62 * n bits.
+     */
+    private static long[] toMontgomeryLimbs(int[] x, int n) {
+        long[] packed = new long[n];
+        for (int i = 0; i < x.length; i++) {
+            long limb = x[i] & LONG_MASK;
+            if (limb == 0) {
+                continue;
+            }
+            int word = 32 * i / MONTGOMERY_BITS;
+            int shift = 32 * i % MONTGOMERY_BITS;
+            packed[word] |= limb << shift & MONTGOMERY_MASK;
+            long rest = shift > MONTGOMERY_BITS - 32 ? limb >>> (MONTGOMERY_BITS - shift) : 0;
+            if (rest != 0) {
+                packed[word + 1] |= rest;
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Unpacks 62-bit limbs into a magnitude, which may have leading zero limbs.
+     */
+    private static int[] fromMontgomeryLimbs(long[] x) {
+        int[] limbs = new int[(MONTGOMERY_BITS * x.length + 31) / 32];
+        for (int i = 0; i < x.length; i++) {
+            int index = MONTGOMERY_BITS * i / 32;
+            int shift = MONTGOMERY_BITS * i % 32;
+            limbs[index] |= (int)(x[i] << shift);
+            for (long rest = x[i] >>> (32 - shift); rest != 0; rest >>>= 32) {
+                limbs[++index] |= (int)rest;
+            }
+        }
+        return limbs;
+    }
+
+    /**
+     * Returns the number of bits in magnitude x, not counting leading zeros.
+     */
+    private static int bitLength(int[] x) {
+        if (x.length == 0) {
+            return 0;
+        }
+        return 32 * x.length - Integer.numberOfLeadingZeros(x[x.length - 1]);
+    }
+
+    /**
+     * Returns the index of the lowest one bit of nonzero magnitude x.
+     */
+    private static int lowestSetBit(int[] x) {
+        int i = 0;
+        while (x[i] == 0) {
+            i++;
+        }
+        return 32 * i + Integer.numberOfTrailingZeros(x[i]);
+    }
+
+    /**
+     * Returns limb i of the two's-complement form of this GinormInt, which
+     * must be stored in limbs, for i below the number of limbs.
+     */
+    private int twosComplementLimb(int i) {
+        if (!negative) {
+            return mag[i];
+        }
+        int lowest = lowestSetBit(mag) >>> 5;
+        if (i < lowest) {
+            return 0;
+        }
+        return i == lowest ? -mag[i] : ~mag[i];
+    }
+
+    /**
+     * Returns the two's-complement form of this GinormInt in length limbs,
+     * which must be more than the number of limbs of the magnitude.
+     */
+    private int[] toTwosComplement(int length) {
+        int[] words = Arrays.copyOf(limbs(), length);
+        if (negative) {
+            negateInPlace(words);
+        }
+        return words;
+    }
+
+    /**
+     * Builds a GinormInt from its two's-complement limbs, taking ownership of
+     * the array.
+     */
+    private static GinormInt fromTwosComplement(int[] words) {
+        boolean isNegative = words.length > 0 && words[words.length - 1] < 0;
+        if (isNegative) {
+            negateInPlace(words);
+        }
+        return new GinormInt(words, isNegative);
+    }
+
+    /**
+     * Replaces two's-complement limbs with those of their negation.
+     */
+    private static void negateInPlace(int[] words) {
+        int i = 0;
+        while (i < words.length && words[i] == 0) {
+            i++;
+        }
+        if (i < words.length) {
+            words[i] = -words[i];
+            for (i++; i < words.length; i++) {
+                words[i] = ~words[i];
+            }
+        }
+    }
+
+    /**
+     * Applies a bitwise operation limb by limb to the two's-complement forms
+     * of this GinormInt and another, with one extra limb for the sign.
+     */
+    private GinormInt bitwise(GinormInt otherInt, IntBinaryOperator op) {
+        int length = Math.max(limbs().length, otherInt.limbs().length) + 1;
+        int[] a = toTwosComplement(length);
+        int[] b = otherInt.toTwosComplement(length);
+        for (int i = 0; i < length; i++) {
+            a[i] = op.applyAsInt(a[i], b[i]);
+        }
+        return fromTwosComplement(a);
+    }
+
+    /**
+     * Builds a GinormInt from big-endian two's-complement bytes.
+     */
+    private static GinormInt fromByteArray(byte[] bytes) {
+        if (bytes.length == 0) {
+            throw new IllegalArgumentException("Sorry, there must be at least one byte.");
+        }
+        int[] words = new int[(bytes.length + 3) / 4];
+        if (bytes[0] < 0) {
+            Arrays.fill(words, -1);
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            int shift = 8 * (i & 3);
+            words[i >>> 2] = (words[i >>> 2] & ~(0xff << shift)) | ((bytes[bytes.length - 1 - i] & 0xff) << shift);
+        }
+        return fromTwosComplement(words);
+    }
+
+    /**
+     * Returns true if bit n of magnitude x is set.
+     */
+    private static boolean testBit(int[] x, int n) {
+        int limb = n >>> 5;
+        return limb < x.length && (x[limb] & (1 << (n & 31))) != 0;
+    }
+
+    /**
+     * Binary GCD of two non-negative longs.
+     */
+    private static long binaryGcd(long a, long b) {
+        if (a == 0) {
+            return b;
+        }
+        if (b == 0) {
+            return a;
+        }
+        int shift = Long.numberOfTrailingZeros(a | b);
+        a >>>= Long.numberOfTrailingZeros(a);
+        while (b != 0) {
+            b >>>= Long.numberOfTrailingZeros(b);
+            if (a > b) {
+                long swap = a;
+                a = b;
+                b = swap;
+            }
+            b -= a;
+        }
+        return a << shift;
+    }
+
+    /**
+     * Returns the low 64 bits of this GinormInt as a signed long.
+     */
+    private long longValue() {
+        if (mag == null) {
+            return small;
+        }
+        long value = 0;
+        for (int i = 1; i >= 0; i--) {
+            value = (value << 32) | (mag[i] & LONG_MASK);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Schoolbook multiplication of two magnitudes.
+     */
+    private static int[] schoolbookMultiply(int[] a, int[] b) {
+        int[] product = new int[a.length + b.length];
+        for (int i = 0; i < a.length; i++) {
+            long ai = a[i] & LONG_MASK;
+            long carry = 0;
+            for (int j = 0; j < b.length; j++) {
+                carry += ai * (b[j] & LONG_MASK) + (product[i + j] & LONG_MASK);
+                product[i + j] = (int)carry;
+                carry >>>= 32;
+            }
+            product[i + b.length] = (int)carry;
+        }
+        return product;
+    }
+
+    /**
+     * Adds magnitude x, which may have leading zero limbs, into target starting
+     * at limb offset. The sum must fit in target.
+     */
+    private static void addInto(int[] target, int offset, int[] x) {
+        int length = x.length;
+        while (length > 0 && x[length - 1] == 0) {
+            length--;
+        }
+        long carry = 0;
+        int i = 0;
+        for (; i < length; i++) {
+            carry += (target[offset + i] & LONG_MASK) + (x[i] & LONG_MASK);
+            target[offset + i] = (int)carry;
+            carry >>>= 32;
+        }
+        for (int j = offset + i; carry != 0; j++) {
+            carry += target[j] & LONG_MASK;
+            target[j] = (int)carry;
+            carry >>>= 32;
+        }
+    }
+
+    /**
+     * Returns limbs from through to - 1 of x, without leading zero limbs.
+     */
+    private static int[] slice(int[] x, int from, int to) {
+        to = Math.min(to, x.length);
+        if (from >= to) {
+            return new int[0];
+        }
+        int[] piece = new int[to - from];
+        System.arraycopy(x, from, piece, 0, piece.length);
+        return stripLeadingZeros(piece, piece.length);
+    }
+
+    /**
+     * Returns magnitude x multiplied by 2^bits.
+     */
+    private static int[] shiftLeftMagnitude(int[] x, int bits) {
+        if (x.length == 0) {
+            return x;
+        }
+        int limbShift = bits >>> 5;
+        int bitShift = bits & 31;
+        int[] shifted = new int[x.length + limbShift + 1];
+        if (bitShift == 0) {
+            System.arraycopy(x, 0, shifted, limbShift, x.length);
+        } else {
+            int carry = 0;
+            for (int i = 0; i < x.length; i++) {
+                shifted[i + limbShift] = (x[i] << bitShift) | carry;
+                carry = x[i] >>> (32 - bitShift);
+            }
+            shifted[x.length + limbShift] = carry;
+        }
+        return stripLeadingZeros(shifted, shifted.length);
+    }
+
+    /**
+     * Returns magnitude x divided by 2^bits, rounding toward zero.
+     */
+    private static int[] shiftRightMagnitude(int[] x, int bits) {
+        int limbShift = bits >>> 5;
+        int bitShift = bits & 31;
+        if (limbShift >= x.length) {
+            return new int[0];
+        }
+        int[] shifted = new int[x.length - limbShift];
+        if (bitShift == 0) {
+            System.arraycopy(x, limbShift, shifted, 0, shifted.length);
+        } else {
+            for (int i = 0; i < shifted.length; i++) {
+                int high = i + limbShift + 1 < x.length ? x[i + limbShift + 1] << (32 - bitShift) : 0;
+                shifted[i] = (x[i + limbShift] >>> bitShift) | high;
+            }
+        }
+        return stripLeadingZeros(shifted, shifted.length);
+    }
+
+    /**
+     * Replaces the first length limbs of x with x * factor + addend.
+     *
+     * @return the new number of used limbs
+     */
+    private static int mulAddInPlace(int[] x, int length, int factor, int addend) {
+        long f = factor & LONG_MASK;
+        long carry = addend & LONG_MASK;
+        for (int i = 0; i < length; i++) {
+            carry += f * (x[i] & LONG_MASK);
+            x[i] = (int)carry;
+            carry >>>= 32;
+        }
+        if (carry != 0) {
+            x[length++] = (int)carry;
+        }
+        return length;
+    }
+
+    /**
+     * Divides the first length limbs of x in place by a positive int divisor.
+     *
+     * @return the remainder
+     */
+    private static int divideInPlace(int[] x, int length, int divisor) {
+        long d = divisor & LONG_MASK;
+        long remainder = 0;
+        for (int i = length - 1; i >= 0; i--) {
+            long current = (remainder << 32) | (x[i] & LONG_MASK);
+            x[i] = (int)(current / d);
+            remainder = current % d;
+        }
+        return (int)remainder;
+    }
+
+    /**
+     * Returns the first length limbs of x without leading zero limbs, reusing
+     * x when it is already the right size.
+     */
+    private static int[] stripLeadingZeros(int[] x, int length) {
+        while (length > 0 && x[length - 1] == 0) {
+            length--;
+        }
+        if (length == x.length) {
+            return x;
         }
-        return reverseString(str);
+        int[] stripped = new int[length];
+        System.arraycopy(x, 0, stripped, 0, length);
+        return stripped;
     }
-}
\ No newline at end of file
+}
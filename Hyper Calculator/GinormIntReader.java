@@ -0,0 +1,112 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Filename: GinormIntReader.java
+ * Description: Reads a file of GinormInts written back to back with
+ *              GinormInt.writeTo(WritableByteChannel). The file is memory
+ *              mapped instead of read into the heap, so reopening a
+ *              checkpoint costs one copy of each value's limbs and nothing
+ *              else. Files larger than one mapping are mapped a window at a
+ *              time.
+ * Author:
+ * Date:
+ */
+public class GinormIntReader implements Iterator<GinormInt>, Closeable {
+    /**
+     * Largest region of the file mapped at once.
+     */
+    private static final long MAX_WINDOW_BYTES = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * Opens a file of GinormInts for reading.
+     *
+     * @param  path file to read
+     * @throws IOException if the file can't be opened or mapped
+     */
+    public GinormIntReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        fileSize = channel.size();
+        mapWindow(0);
+    }
+
+    /**
+     * Returns true if there are more GinormInts to read.
+     */
+    @Override
+    public boolean hasNext() {
+        return position() < fileSize;
+    }
+
+    /**
+     * Reads the next GinormInt from the file.
+     *
+     * @return the GinormInt read
+     * @throws UncheckedIOException if the file is truncated or corrupt
+     */
+    @Override
+    public GinormInt next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException("Sorry, there are no more GinormInts in the file.");
+        }
+        try {
+            if (window.remaining() < GinormInt.SERIALIZED_HEADER_BYTES
+                    || window.remaining() < valueSizeAt(window.position())) {
+                mapWindow(position());
+            }
+            return GinormInt.readFrom(window);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the byte offset in the file of the next GinormInt.
+     */
+    public long position() {
+        return windowStart + window.position();
+    }
+
+    /**
+     * Closes the file. Values already read stay valid.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Returns the size in bytes of the value whose header starts at the given
+     * window offset, or the remaining bytes if the header is cut off.
+     */
+    private long valueSizeAt(int offset) {
+        if (window.limit() - offset < GinormInt.SERIALIZED_HEADER_BYTES) {
+            return window.limit() - offset;
+        }
+        int count = window.getInt(offset + 1);
+        return GinormInt.SERIALIZED_HEADER_BYTES + 4L * Math.max(count, 0);
+    }
+
+    /**
+     * Maps the largest allowed window of the file starting at the given offset.
+     */
+    private void mapWindow(long start) throws IOException {
+        long size = Math.min(fileSize - start, MAX_WINDOW_BYTES);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = start;
+    }
+}
@@ -0,0 +1,418 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Filename: HyperCalculator.java
+ * Description: Command-line calculator for GinormInts. Reads one expression
+ *              per line from a file or standard input, evaluates the lines
+ *              on a pool of worker threads, and writes one result per line
+ *              in input order. Lines are read as they're needed: at most a
+ *              fixed number of expressions are in flight at once, so a huge
+ *              batch streams through in bounded memory. Per-expression
+ *              latency and overall throughput go to standard error at the
+ *              end.
+ *
+ *              Usage: java HyperCalculator [-rpn] [-threads n] [-inflight n] [-times] [file]
+ *
+ *              Expressions are infix with + - * / % ^, unary minus and
+ *              parentheses, or reverse Polish with -rpn. / and % truncate
+ *              like GinormInt.div() and mod(). A line that can't be
+ *              evaluated produces an error message in its place, and a blank
+ *              line produces a blank line.
+ * Author:
+ * Date:
+ */
+public class HyperCalculator {
+    private final boolean rpn;
+    private final int threads;
+    private final int inFlight;
+    private final boolean times;
+
+    /**
+     * Constructor takes in the evaluation options.
+     *
+     * @param  rpn      true to read reverse Polish lines instead of infix
+     * @param  threads  number of worker threads, at least 1
+     * @param  inFlight most expressions read but not yet written, at least 1
+     * @param  times    true to write each expression's latency to standard error
+     */
+    public HyperCalculator(boolean rpn, int threads, int inFlight, boolean times) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Sorry, there must be at least one thread.");
+        }
+        if (inFlight < 1) {
+            throw new IllegalArgumentException("Sorry, at least one expression must be allowed in flight.");
+        }
+        this.rpn = rpn;
+        this.threads = threads;
+        this.inFlight = inFlight;
+        this.times = times;
+    }
+
+    public static void main(String[] args) {
+        try {
+            boolean rpn = false;
+            boolean times = false;
+            int threads = Runtime.getRuntime().availableProcessors();
+            int inFlight = -1;
+            String file = null;
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-rpn")) {
+                    rpn = true;
+                } else if (args[i].equals("-times")) {
+                    times = true;
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-inflight") && i + 1 < args.length) {
+                    inFlight = Integer.parseInt(args[++i]);
+                } else if (file == null && !args[i].startsWith("-")) {
+                    file = args[i];
+                } else {
+                    throw new IllegalArgumentException("Usage: java HyperCalculator [-rpn] [-threads n]"
+                            + " [-inflight n] [-times] [file]");
+                }
+            }
+            if (inFlight == -1) {
+                inFlight = 4 * threads;
+            }
+
+            HyperCalculator calculator = new HyperCalculator(rpn, threads, inFlight, times);
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+            try (BufferedReader in = new BufferedReader(file == null
+                    ? new InputStreamReader(System.in) : new FileReader(file))) {
+                calculator.run(in, out);
+            }
+
+        } catch (NumberFormatException e) {
+            System.err.println("Thread and in-flight counts must be integers");
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+
+        } catch (IOException e) {
+            System.err.println("Sorry, couldn't read the input: " + e.getMessage());
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Evaluates every line of in and writes the results to out in the same
+     * order, then writes the latency and throughput report to standard error.
+     *
+     * @param  in  lines to evaluate
+     * @param  out destination for the results, flushed at the end
+     * @throws IOException          if reading or writing fails
+     * @throws InterruptedException if interrupted while waiting for a result
+     */
+    public void run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<Result>> pending = new ArrayDeque<>();
+        ArrayList<Long> latencies = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (pending.size() == inFlight) {
+                    write(pending.poll(), out, latencies);
+                }
+                String expression = line;
+                pending.add(pool.submit(() -> evaluateTimed(expression)));
+                while (!pending.isEmpty() && pending.peek().isDone()) {
+                    write(pending.poll(), out, latencies);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out, latencies);
+            }
+            out.flush();
+        } finally {
+            pool.shutdownNow();
+        }
+        report(latencies, System.nanoTime() - start);
+    }
+
+    /**
+     * Evaluates one line as infix or reverse Polish, depending on the options.
+     *
+     * @param  line expression to evaluate
+     * @return GinormInt value of the expression
+     * @throws IllegalArgumentException if the expression is malformed
+     * @throws ArithmeticException      if it divides by zero or raises to a negative power
+     */
+    public GinormInt evaluate(String line) {
+        return rpn ? evaluateRpn(line) : new InfixParser(line).parse();
+    }
+
+    /**
+     * Evaluates a reverse Polish expression, such as "2 3 4 * +".
+     *
+     * @param  line expression to evaluate
+     * @return GinormInt value of the expression
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    public static GinormInt evaluateRpn(String line) {
+        ArrayDeque<GinormInt> stack = new ArrayDeque<>();
+        for (String token : line.trim().split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (token.length() == 1 && "+-*/%^".indexOf(token.charAt(0)) >= 0) {
+                if (stack.size() < 2) {
+                    throw new IllegalArgumentException("Sorry, '" + token + "' needs two operands.");
+                }
+                GinormInt right = stack.pop();
+                stack.push(apply(token.charAt(0), stack.pop(), right));
+            } else {
+                stack.push(GinormInt.parse(token, 10));
+            }
+        }
+        if (stack.size() != 1) {
+            throw new IllegalArgumentException("Sorry, the expression must leave exactly one value.");
+        }
+        return stack.pop();
+    }
+
+    /**
+     * Applies a binary operator to two GinormInts.
+     */
+    private static GinormInt apply(char operator, GinormInt left, GinormInt right) {
+        switch (operator) {
+            case '+':
+                return left.plus(right);
+            case '-':
+                return left.minus(right);
+            case '*':
+                return left.times(right);
+            case '/':
+                return left.div(right);
+            case '%':
+                return left.mod(right);
+            default:
+                if (right.getNegative()) {
+                    throw new ArithmeticException("Sorry, exponents must not be negative.");
+                }
+                if (right.bitLength() > 31) {
+                    throw new ArithmeticException("Sorry, exponent is too large.");
+                }
+                return left.pow(Integer.parseInt(right.toString()));
+        }
+    }
+
+    /**
+     * Evaluates a line and formats its result on the worker thread, so the
+     * writer only copies finished strings. Any failure becomes the line's
+     * error message, so one bad expression doesn't stop the batch.
+     */
+    private Result evaluateTimed(String line) {
+        long start = System.nanoTime();
+        String text;
+        try {
+            text = line.trim().isEmpty() ? "" : evaluate(line).toString();
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            text = e.getMessage();
+        } catch (RuntimeException | OutOfMemoryError | StackOverflowError e) {
+            text = failureMessage(e);
+        }
+        return new Result(text, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns the error line for an expression that failed other than by
+     * being malformed or dividing by zero.
+     */
+    private static String failureMessage(Throwable failure) {
+        if (failure instanceof OutOfMemoryError) {
+            return "Sorry, there isn't enough memory to evaluate the expression.";
+        }
+        return "Sorry, couldn't evaluate the expression: " + failure;
+    }
+
+    /**
+     * Waits for a result, writes it as one line and records its latency.
+     */
+    private void write(Future<Result> future, Writer out, ArrayList<Long> latencies)
+            throws IOException, InterruptedException {
+        Result result;
+        try {
+            result = future.get();
+        } catch (ExecutionException e) {
+            result = new Result(failureMessage(e.getCause()), 0);
+        }
+        out.write(result.text);
+        out.write('\n');
+        latencies.add(result.nanos);
+        if (times) {
+            System.err.printf("line %d: %.3f ms%n", latencies.size(), result.nanos / 1e6);
+        }
+    }
+
+    /**
+     * Writes the latency percentiles and throughput to standard error.
+     */
+    private static void report(ArrayList<Long> latencies, long elapsedNanos) {
+        if (latencies.isEmpty()) {
+            return;
+        }
+        long[] sorted = new long[latencies.size()];
+        long total = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = latencies.get(i);
+            total += sorted[i];
+        }
+        Arrays.sort(sorted);
+        System.err.printf("%d expressions in %.3f s: %.1f expressions/s%n",
+                sorted.length, elapsedNanos / 1e9, sorted.length / (elapsedNanos / 1e9));
+        System.err.printf("latency ms: mean %.3f, p50 %.3f, p99 %.3f, max %.3f%n",
+                total / 1e6 / sorted.length, percentile(sorted, 0.50) / 1e6,
+                percentile(sorted, 0.99) / 1e6, sorted[sorted.length - 1] / 1e6);
+    }
+
+    /**
+     * Returns the nearest-rank percentile of sorted values.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        int rank = (int)Math.ceil(fraction * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    /**
+     * A formatted result and the time it took to compute.
+     */
+    private static final class Result {
+        private final String text;
+        private final long nanos;
+
+        Result(String text, long nanos) {
+            this.text = text;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Recursive-descent parser and evaluator for one infix expression.
+     * Precedence from lowest to highest: + and -, then * / and %, then unary
+     * minus, then ^, which groups to the right.
+     */
+    private static final class InfixParser {
+        /**
+         * Deepest nesting of parentheses, unary minuses and exponents allowed,
+         * so a pathological line is rejected instead of overflowing the stack.
+         */
+        private static final int MAX_DEPTH = 1000;
+
+        private final String text;
+        private int pos;
+        private int depth;
+
+        InfixParser(String text) {
+            this.text = text;
+        }
+
+        GinormInt parse() {
+            GinormInt value = sum();
+            skipSpaces();
+            if (pos < text.length()) {
+                throw error();
+            }
+            return value;
+        }
+
+        private GinormInt sum() {
+            GinormInt value = product();
+            while (true) {
+                skipSpaces();
+                if (pos == text.length() || "+-".indexOf(text.charAt(pos)) < 0) {
+                    return value;
+                }
+                char operator = text.charAt(pos++);
+                value = apply(operator, value, product());
+            }
+        }
+
+        private GinormInt product() {
+            GinormInt value = unary();
+            while (true) {
+                skipSpaces();
+                if (pos == text.length() || "*/%".indexOf(text.charAt(pos)) < 0) {
+                    return value;
+                }
+                char operator = text.charAt(pos++);
+                value = apply(operator, value, unary());
+            }
+        }
+
+        private GinormInt unary() {
+            if (++depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Sorry, the expression is nested too deeply.");
+            }
+            try {
+                skipSpaces();
+                if (pos < text.length() && text.charAt(pos) == '-') {
+                    pos++;
+                    return unary().negate();
+                }
+                return power();
+            } finally {
+                depth--;
+            }
+        }
+
+        private GinormInt power() {
+            GinormInt base = operand();
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '^') {
+                pos++;
+                return apply('^', base, unary());
+            }
+            return base;
+        }
+
+        private GinormInt operand() {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '(') {
+                pos++;
+                GinormInt value = sum();
+                skipSpaces();
+                if (pos == text.length() || text.charAt(pos) != ')') {
+                    throw error();
+                }
+                pos++;
+                return value;
+            }
+            int start = pos;
+            while (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                pos++;
+            }
+            if (start == pos) {
+                throw error();
+            }
+            return GinormInt.parse(text.subSequence(start, pos), 10);
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error() {
+            return new IllegalArgumentException(pos < text.length()
+                    ? "Sorry, unexpected '" + text.charAt(pos) + "' at position " + (pos + 1) + "."
+                    : "Sorry, the expression ends too early.");
+        }
+    }
+}
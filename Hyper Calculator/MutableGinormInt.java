@@ -0,0 +1,409 @@
+import java.util.Arrays;
+
+/**
+ * Filename: MutableGinormInt.java
+ * Description: A mutable companion to GinormInt for hot loops such as running
+ *              sums and factorials. Operations update the value in place in a
+ *              primitive limb array that only grows when the value outgrows
+ *              it, so a tight loop allocates almost nothing. Not thread-safe;
+ *              call toImmutable() to hand a value to other code.
+ * Author:
+ * Date:
+ */
+public class MutableGinormInt {
+    /**
+     * Mask for reading a limb as an unsigned value.
+     */
+    private static final long LONG_MASK = 0xffffffffL;
+
+    private int[] value;
+    private int length;
+    private boolean negative;
+    private int[] scratch = new int[0];
+
+    /**
+     * Holds the magnitude of an inline GinormInt operand, so operands that
+     * fit in a long are used without allocating their limbs.
+     */
+    private final int[] inline = new int[2];
+
+    /**
+     * Creates an accumulator holding zero.
+     */
+    public MutableGinormInt() {
+        value = new int[4];
+    }
+
+    /**
+     * Creates an accumulator holding the value of a GinormInt.
+     *
+     * @param  initial starting value
+     */
+    public MutableGinormInt(GinormInt initial) {
+        value = new int[Math.max(4, initial.limbs().length)];
+        set(initial);
+    }
+
+    /**
+     * Replaces the value of this accumulator with the value of a GinormInt.
+     *
+     * @param  newValue value to hold
+     * @return this accumulator
+     */
+    public MutableGinormInt set(GinormInt newValue) {
+        if (newValue.isInline()) {
+            length = loadInline(newValue);
+            ensureCapacity(length);
+            System.arraycopy(inline, 0, value, 0, length);
+        } else {
+            int[] limbs = newValue.limbs();
+            ensureCapacity(limbs.length);
+            System.arraycopy(limbs, 0, value, 0, limbs.length);
+            length = limbs.length;
+        }
+        negative = newValue.getNegative();
+        return this;
+    }
+
+    /**
+     * Adds a GinormInt to this accumulator in place.
+     *
+     * @param  otherInt GinormInt to add
+     * @return this accumulator
+     */
+    public MutableGinormInt add(GinormInt otherInt) {
+        if (otherInt.isInline()) {
+            return addSigned(inline, loadInline(otherInt), otherInt.getNegative());
+        }
+        int[] other = otherInt.limbs();
+        return addSigned(other, other.length, otherInt.getNegative());
+    }
+
+    /**
+     * Subtracts a GinormInt from this accumulator in place.
+     *
+     * @param  otherInt GinormInt to subtract
+     * @return this accumulator
+     */
+    public MutableGinormInt subtract(GinormInt otherInt) {
+        if (otherInt.isInline()) {
+            return addSigned(inline, loadInline(otherInt), !otherInt.getNegative());
+        }
+        int[] other = otherInt.limbs();
+        return addSigned(other, other.length, !otherInt.getNegative());
+    }
+
+    /**
+     * Multiplies this accumulator in place by an int.
+     *
+     * @param  factor int to multiply by
+     * @return this accumulator
+     */
+    public MutableGinormInt multiplyBy(int factor) {
+        if (factor == 0 || length == 0) {
+            length = 0;
+            negative = false;
+            return this;
+        }
+        long f = Math.abs((long)factor);
+        ensureCapacity(length + 1);
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            carry += f * (value[i] & LONG_MASK);
+            value[i] = (int)carry;
+            carry >>>= 32;
+        }
+        if (carry != 0) {
+            value[length++] = (int)carry;
+        }
+        negative = negative != factor < 0;
+        return this;
+    }
+
+    /**
+     * Multiplies this accumulator in place by a GinormInt. Small operands are
+     * multiplied into a reused scratch buffer; large ones go through the
+     * same Karatsuba/Toom-3/NTT engine as GinormInt.times().
+     *
+     * @param  otherInt GinormInt to multiply by
+     * @return this accumulator
+     */
+    public MutableGinormInt multiplyBy(GinormInt otherInt) {
+        int[] other;
+        int otherLength;
+        if (otherInt.isInline()) {
+            other = inline;
+            otherLength = loadInline(otherInt);
+        } else {
+            other = otherInt.limbs();
+            otherLength = other.length;
+        }
+        if (otherLength == 0 || length == 0) {
+            length = 0;
+            negative = false;
+            return this;
+        }
+        if (otherLength == 1) {
+            boolean otherNegative = otherInt.getNegative();
+            multiplyByLimb(other[0]);
+            negative = negative != otherNegative;
+            return this;
+        }
+        int productLength = length + otherLength;
+        if (Math.min(length, otherLength) < GinormInt.getKaratsubaThreshold()) {
+            if (scratch.length < productLength) {
+                scratch = new int[Math.max(productLength, 2 * scratch.length)];
+            }
+            Arrays.fill(scratch, 0, productLength, 0);
+            for (int i = 0; i < length; i++) {
+                long ai = value[i] & LONG_MASK;
+                long carry = 0;
+                for (int j = 0; j < otherLength; j++) {
+                    carry += ai * (other[j] & LONG_MASK) + (scratch[i + j] & LONG_MASK);
+                    scratch[i + j] = (int)carry;
+                    carry >>>= 32;
+                }
+                scratch[i + otherLength] = (int)carry;
+            }
+            int[] swap = value;
+            value = scratch;
+            scratch = swap;
+        } else {
+            int[] current = Arrays.copyOf(value, length);
+            int[] product = GinormInt.multiplyMagnitudes(current,
+                    otherLength == other.length ? other : Arrays.copyOf(other, otherLength));
+            if (product.length > value.length) {
+                value = product;
+            } else {
+                System.arraycopy(product, 0, value, 0, product.length);
+            }
+            productLength = product.length;
+        }
+        length = productLength;
+        trim();
+        negative = negative != otherInt.getNegative();
+        return this;
+    }
+
+    /**
+     * Multiplies this accumulator in place by 2^bits.
+     *
+     * @param  bits number of bits to shift left, at least 0
+     * @return this accumulator
+     */
+    public MutableGinormInt shiftLeft(int bits) {
+        if (bits < 0) {
+            throw new IllegalArgumentException("Sorry, shift distance must not be negative.");
+        }
+        if (length == 0 || bits == 0) {
+            return this;
+        }
+        int limbShift = bits >>> 5;
+        int bitShift = bits & 31;
+        ensureCapacity(length + limbShift + 1);
+        value[length + limbShift] = 0;
+        if (bitShift == 0) {
+            System.arraycopy(value, 0, value, limbShift, length);
+        } else {
+            for (int i = length - 1; i >= 0; i--) {
+                value[i + limbShift + 1] |= value[i] >>> (32 - bitShift);
+                value[i + limbShift] = value[i] << bitShift;
+            }
+        }
+        Arrays.fill(value, 0, limbShift, 0);
+        length += limbShift + 1;
+        trim();
+        return this;
+    }
+
+    /**
+     * Returns true if this accumulator holds zero.
+     */
+    public boolean isZero() {
+        return length == 0;
+    }
+
+    /**
+     * Returns true if this accumulator holds a negative value.
+     */
+    public boolean getNegative() {
+        return negative;
+    }
+
+    /**
+     * Returns an immutable GinormInt with the current value. Costs one copy of
+     * the used limbs; the accumulator can keep being updated afterwards.
+     *
+     * @return GinormInt holding the current value
+     */
+    public GinormInt toImmutable() {
+        return GinormInt.fromLimbs(value, length, negative);
+    }
+
+    /**
+     * Returns the decimal representation of the current value.
+     */
+    @Override
+    public String toString() {
+        return toImmutable().toString();
+    }
+
+    /**
+     * Loads the magnitude of an inline GinormInt into the inline buffer and
+     * returns its length in limbs.
+     */
+    private int loadInline(GinormInt otherInt) {
+        long small = otherInt.inlineValue();
+        long magnitude = small < 0 ? -small : small;
+        inline[0] = (int)magnitude;
+        inline[1] = (int)(magnitude >>> 32);
+        return magnitude == 0 ? 0 : (magnitude >>> 32) == 0 ? 1 : 2;
+    }
+
+    /**
+     * Adds the signed magnitude in the first otherLength limbs of other to
+     * this accumulator in place.
+     */
+    private MutableGinormInt addSigned(int[] other, int otherLength, boolean otherNegative) {
+        if (otherLength == 0) {
+            return this;
+        }
+        if (length == 0 || negative == otherNegative) {
+            if (length == 0) {
+                negative = otherNegative;
+            }
+            addMagnitude(other, otherLength);
+            return this;
+        }
+        int compare = compareMagnitude(other, otherLength);
+        if (compare >= 0) {
+            subtractMagnitude(other, otherLength);
+        } else {
+            subtractFromMagnitude(other, otherLength);
+            negative = otherNegative;
+        }
+        if (length == 0) {
+            negative = false;
+        }
+        return this;
+    }
+
+    /**
+     * Adds the magnitude in the first otherLength limbs of other to the
+     * magnitude of this accumulator.
+     */
+    private void addMagnitude(int[] other, int otherLength) {
+        int longest = Math.max(length, otherLength);
+        ensureCapacity(longest + 1);
+        for (int i = length; i <= longest; i++) {
+            value[i] = 0;
+        }
+        long carry = 0;
+        int i = 0;
+        for (; i < otherLength; i++) {
+            carry += (value[i] & LONG_MASK) + (other[i] & LONG_MASK);
+            value[i] = (int)carry;
+            carry >>>= 32;
+        }
+        for (; carry != 0; i++) {
+            carry += value[i] & LONG_MASK;
+            value[i] = (int)carry;
+            carry >>>= 32;
+        }
+        length = longest + 1;
+        trim();
+    }
+
+    /**
+     * Subtracts the magnitude in the first otherLength limbs of other, which
+     * must not be larger, from the magnitude of this accumulator.
+     */
+    private void subtractMagnitude(int[] other, int otherLength) {
+        long borrow = 0;
+        int i = 0;
+        for (; i < otherLength; i++) {
+            borrow = (value[i] & LONG_MASK) - (other[i] & LONG_MASK) + borrow;
+            value[i] = (int)borrow;
+            borrow >>= 32;
+        }
+        for (; borrow != 0; i++) {
+            borrow = (value[i] & LONG_MASK) + borrow;
+            value[i] = (int)borrow;
+            borrow >>= 32;
+        }
+        trim();
+    }
+
+    /**
+     * Replaces the magnitude of this accumulator, which must be smaller than
+     * the magnitude in the first otherLength limbs of other, with other
+     * minus it.
+     */
+    private void subtractFromMagnitude(int[] other, int otherLength) {
+        ensureCapacity(otherLength);
+        for (int i = length; i < otherLength; i++) {
+            value[i] = 0;
+        }
+        long borrow = 0;
+        for (int i = 0; i < otherLength; i++) {
+            borrow = (other[i] & LONG_MASK) - (value[i] & LONG_MASK) + borrow;
+            value[i] = (int)borrow;
+            borrow >>= 32;
+        }
+        length = otherLength;
+        trim();
+    }
+
+    /**
+     * Multiplies the magnitude of this accumulator by an unsigned limb.
+     */
+    private void multiplyByLimb(int limb) {
+        long f = limb & LONG_MASK;
+        ensureCapacity(length + 1);
+        long carry = 0;
+        for (int i = 0; i < length; i++) {
+            carry += f * (value[i] & LONG_MASK);
+            value[i] = (int)carry;
+            carry >>>= 32;
+        }
+        if (carry != 0) {
+            value[length++] = (int)carry;
+        }
+    }
+
+    /**
+     * Compares the magnitude of this accumulator to the magnitude in the
+     * first otherLength limbs of other.
+     *
+     * @return 1 if this is larger, 0 if equal, -1 if it's smaller
+     */
+    private int compareMagnitude(int[] other, int otherLength) {
+        if (length != otherLength) {
+            return length < otherLength ? -1 : 1;
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            if (value[i] != other[i]) {
+                return (value[i] & LONG_MASK) < (other[i] & LONG_MASK) ? -1 : 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Grows the limb array, at least doubling it, so it can hold capacity limbs.
+     */
+    private void ensureCapacity(int capacity) {
+        if (value.length < capacity) {
+            value = Arrays.copyOf(value, Math.max(capacity, 2 * value.length));
+        }
+    }
+
+    /**
+     * Drops leading zero limbs from the used length.
+     */
+    private void trim() {
+        while (length > 0 && value[length - 1] == 0) {
+            length--;
+        }
+    }
+}
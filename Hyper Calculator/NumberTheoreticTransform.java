@@ -0,0 +1,217 @@
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Filename: NumberTheoreticTransform.java
+ * Description: Multiplies GinormInt magnitudes with number-theoretic
+ *              transforms. Each 32-bit limb is split into two 16-bit
+ *              coefficients, the coefficient sequences are convolved modulo
+ *              three NTT-friendly primes, and the exact convolution is
+ *              recovered with the Chinese remainder theorem before the
+ *              carries are propagated back into limbs.
+ * Author:
+ * Date:
+ */
+final class NumberTheoreticTransform {
+    /**
+     * Primes of the form c * 2^k + 1 with a primitive root g, so each has
+     * 2^k-th roots of unity. Their product, about 2^87, bounds every
+     * convolution coefficient, which is below 2^58 for allowed sizes.
+     */
+    private static final int[] PRIMES = {2013265921, 469762049, 167772161};
+    private static final int[] ROOTS = {31, 3, 3};
+
+    /**
+     * Largest transform length supported by all three primes.
+     */
+    private static final int MAX_TRANSFORM_LENGTH = 1 << 25;
+
+    /**
+     * Largest combined operand length, in limbs, that fits in one transform.
+     */
+    static final int MAX_LIMBS = MAX_TRANSFORM_LENGTH / 2;
+
+    /**
+     * Constants for Garner's algorithm: P1^-1 mod P2, and (P1 * P2)^-1 mod P3.
+     */
+    private static final long P1 = PRIMES[0];
+    private static final long P2 = PRIMES[1];
+    private static final long P3 = PRIMES[2];
+    private static final long P1_INVERSE_MOD_P2 = modPow(P1 % P2, P2 - 2, P2);
+    private static final long P1P2_INVERSE_MOD_P3 = modPow((P1 % P3) * (P2 % P3) % P3, P3 - 2, P3);
+
+    private static final long LONG_MASK = 0xffffffffL;
+
+    private NumberTheoreticTransform() {
+    }
+
+    /**
+     * Multiplies two nonempty magnitudes whose combined length is at most
+     * MAX_LIMBS. If a and b are the same array the product is a square and
+     * only one forward transform per prime is done. When parallel is true the
+     * current thread must be a fork-join worker, and the three primes are
+     * convolved as separate tasks.
+     */
+    static int[] multiply(int[] a, int[] b, boolean parallel) {
+        boolean square = a == b;
+        int coefficients = 2 * (a.length + b.length);
+        int n = Integer.highestOneBit(coefficients - 1) << 1;
+        int[][] residues = new int[PRIMES.length][];
+        if (parallel) {
+            ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[PRIMES.length];
+            for (int i = 0; i < PRIMES.length; i++) {
+                int prime = i;
+                tasks[i] = ForkJoinTask.adapt(() -> {
+                    residues[prime] = convolve(a, b, square, n, prime);
+                });
+            }
+            ForkJoinTask.invokeAll(tasks);
+        } else {
+            for (int i = 0; i < PRIMES.length; i++) {
+                residues[i] = convolve(a, b, square, n, i);
+            }
+        }
+
+        int[] product = new int[a.length + b.length];
+        long carry = 0;
+        for (int i = 0; i < coefficients; i++) {
+            carry += garner(residues[0][i], residues[1][i], residues[2][i]);
+            int low = (int)(carry & 0xffff);
+            carry >>>= 16;
+            if ((i & 1) == 0) {
+                product[i >> 1] = low;
+            } else {
+                product[i >> 1] |= low << 16;
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Returns the cyclic convolution of the 16-bit coefficients of a and b
+     * modulo PRIMES[prime], with transform length n.
+     */
+    private static int[] convolve(int[] a, int[] b, boolean square, int n, int prime) {
+        int p = PRIMES[prime];
+        int[][] forward = twiddles(n, p, modPow(ROOTS[prime], (p - 1) / n, p));
+        int[] fa = toCoefficients(a, n);
+        transform(fa, forward, p);
+        int[] fb = fa;
+        if (!square) {
+            fb = toCoefficients(b, n);
+            transform(fb, forward, p);
+        }
+        long scale = modPow(n, p - 2, p);
+        for (int i = 0; i < n; i++) {
+            fa[i] = (int)((long)fa[i] * fb[i] % p * scale % p);
+        }
+        int[][] inverse = twiddles(n, p, modPow(ROOTS[prime], p - 1 - (p - 1) / n, p));
+        transform(fa, inverse, p);
+        return fa;
+    }
+
+    /**
+     * Splits each limb of x into two 16-bit coefficients, zero-padded to n.
+     */
+    private static int[] toCoefficients(int[] x, int n) {
+        int[] coefficients = new int[n];
+        for (int i = 0; i < x.length; i++) {
+            coefficients[2 * i] = x[i] & 0xffff;
+            coefficients[2 * i + 1] = x[i] >>> 16;
+        }
+        return coefficients;
+    }
+
+    /**
+     * Builds the twiddle factors for a length-n transform from a primitive
+     * n-th root of unity. Entry span + j holds the j-th power of the
+     * (2 * span)-th root, so each butterfly stage reads its factors
+     * contiguously. The second array holds Shoup's companion of each factor
+     * w, floor(w * 2^32 / p), as an unsigned int.
+     */
+    private static int[][] twiddles(int n, int p, long root) {
+        int[] factors = new int[Math.max(n, 2)];
+        int[] companions = new int[factors.length];
+        int half = n / 2;
+        long power = 1;
+        for (int j = 0; j < half; j++) {
+            factors[half + j] = (int)power;
+            power = power * root % p;
+        }
+        for (int span = half / 2; span >= 1; span /= 2) {
+            for (int j = 0; j < span; j++) {
+                factors[span + j] = factors[2 * (span + j)];
+            }
+        }
+        for (int i = 1; i < n; i++) {
+            companions[i] = (int)(((long)factors[i] << 32) / p);
+        }
+        return new int[][] {factors, companions};
+    }
+
+    /**
+     * In-place iterative radix-2 transform of a modulo p with the given
+     * twiddle factors. Butterflies multiply by the factors with Shoup's
+     * method, which turns each reduction into a multiply and a shift instead
+     * of a division.
+     */
+    private static void transform(int[] a, int[][] twiddles, int p) {
+        int n = a.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                int swap = a[i];
+                a[i] = a[j];
+                a[j] = swap;
+            }
+        }
+
+        int[] factors = twiddles[0];
+        int[] companions = twiddles[1];
+        for (int span = 1; span < n; span <<= 1) {
+            for (int start = 0; start < n; start += 2 * span) {
+                for (int j = 0; j < span; j++) {
+                    int u = a[start + j];
+                    long v = a[start + j + span];
+                    long q = ((companions[span + j] & LONG_MASK) * v) >>> 32;
+                    long reduced = factors[span + j] * v - q * p;
+                    int product = (int)(reduced >= p ? reduced - p : reduced);
+                    int sum = u - (p - product);
+                    a[start + j] = sum < 0 ? sum + p : sum;
+                    int difference = u - product;
+                    a[start + j + span] = difference < 0 ? difference + p : difference;
+                }
+            }
+        }
+    }
+
+    /**
+     * Recovers a coefficient from its residues modulo the three primes. The
+     * last step overflows a long, but the true value is below 2^63, so the
+     * wrapped result is exact.
+     */
+    private static long garner(int r1, int r2, int r3) {
+        long x12 = r1 + P1 * (((r2 - r1) % P2 + P2) % P2 * P1_INVERSE_MOD_P2 % P2);
+        long t = ((r3 - x12 % P3) % P3 + P3) % P3 * P1P2_INVERSE_MOD_P3 % P3;
+        return x12 + P1 * P2 * t;
+    }
+
+    /**
+     * Returns base^exponent mod m for m below 2^31.
+     */
+    private static long modPow(long base, long exponent, long m) {
+        long result = 1;
+        base %= m;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result = result * base % m;
+            }
+            base = base * base % m;
+            exponent >>= 1;
+        }
+        return result;
+    }
+}
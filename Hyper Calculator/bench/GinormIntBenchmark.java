@@ -0,0 +1,224 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Filename: GinormIntBenchmark.java
+ * Description: JMH benchmarks running each GinormInt operation side by side
+ *              with the same operation on java.math.BigInteger, for operands
+ *              from 10 to 10^6 decimal digits. main() adds the GC profiler,
+ *              so every result comes with its allocation rate.
+ *
+ *              JMH refuses benchmarks in the default package, so this class
+ *              lives in package bench and reaches GinormInt, which is in the
+ *              default package, through constant method handles. The JIT
+ *              inlines those like direct calls.
+ *
+ *              To run it, compile Hyper Calculator/*.java and this file into
+ *              one directory with jmh-core and jmh-generator-annprocess on
+ *              the classpath, then run
+ *                  java -cp <classes>:<jmh jars> bench.GinormIntBenchmark
+ *              Any JMH options (for example -p digits=1000 or -prof gc) can
+ *              be given instead by running org.openjdk.jmh.Main with the
+ *              same classpath.
+ * Author:
+ * Date:
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GinormIntBenchmark {
+    private static final MethodHandle NEW;
+    private static final MethodHandle PLUS;
+    private static final MethodHandle MINUS;
+    private static final MethodHandle TIMES;
+    private static final MethodHandle DIV;
+    private static final MethodHandle MOD;
+
+    static {
+        try {
+            Class<?> ginormInt = Class.forName("GinormInt");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            MethodType binary = MethodType.methodType(ginormInt, ginormInt);
+            MethodType erased = MethodType.methodType(Object.class, Object.class, Object.class);
+            NEW = lookup.findConstructor(ginormInt, MethodType.methodType(void.class, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            PLUS = lookup.findVirtual(ginormInt, "plus", binary).asType(erased);
+            MINUS = lookup.findVirtual(ginormInt, "minus", binary).asType(erased);
+            TIMES = lookup.findVirtual(ginormInt, "times", binary).asType(erased);
+            DIV = lookup.findVirtual(ginormInt, "div", binary).asType(erased);
+            MOD = lookup.findVirtual(ginormInt, "mod", binary).asType(erased);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Number of decimal digits in each operand. Divisors have half as many.
+     */
+    @Param({"10", "100", "1000", "10000", "100000", "1000000"})
+    public int digits;
+
+    private String text;
+    private Object ginormA;
+    private Object ginormB;
+    private Object ginormACopy;
+    private Object ginormDivisor;
+    private BigInteger bigA;
+    private BigInteger bigB;
+    private BigInteger bigACopy;
+    private BigInteger bigDivisor;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Random random = new Random(digits);
+        text = randomDigits(random, digits);
+        String other = randomDigits(random, digits);
+        String divisor = randomDigits(random, Math.max(1, digits / 2));
+        ginormA = (Object)NEW.invokeExact(text);
+        ginormB = (Object)NEW.invokeExact(other);
+        ginormACopy = (Object)NEW.invokeExact(text);
+        ginormDivisor = (Object)NEW.invokeExact(divisor);
+        bigA = new BigInteger(text);
+        bigB = new BigInteger(other);
+        bigACopy = new BigInteger(text);
+        bigDivisor = new BigInteger(divisor);
+    }
+
+    /**
+     * Returns a random decimal number with exactly the given number of digits.
+     */
+    private static String randomDigits(Random random, int count) {
+        StringBuilder str = new StringBuilder(count);
+        str.append((char)('1' + random.nextInt(9)));
+        for (int i = 1; i < count; i++) {
+            str.append((char)('0' + random.nextInt(10)));
+        }
+        return str.toString();
+    }
+
+    @Benchmark
+    public Object ginormIntConstructor() throws Throwable {
+        return (Object)NEW.invokeExact(text);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerConstructor() {
+        return new BigInteger(text);
+    }
+
+    @Benchmark
+    public String ginormIntToString() {
+        return ginormA.toString();
+    }
+
+    @Benchmark
+    public String bigIntegerToString() {
+        return bigA.toString();
+    }
+
+    @Benchmark
+    public Object ginormIntPlus() throws Throwable {
+        return (Object)PLUS.invokeExact(ginormA, ginormB);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerPlus() {
+        return bigA.add(bigB);
+    }
+
+    @Benchmark
+    public Object ginormIntMinus() throws Throwable {
+        return (Object)MINUS.invokeExact(ginormA, ginormB);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerMinus() {
+        return bigA.subtract(bigB);
+    }
+
+    @Benchmark
+    public Object ginormIntTimes() throws Throwable {
+        return (Object)TIMES.invokeExact(ginormA, ginormB);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerTimes() {
+        return bigA.multiply(bigB);
+    }
+
+    /**
+     * Compares equal values held in different objects, so every limb is read.
+     */
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public int ginormIntCompareTo() {
+        return ((Comparable<Object>)ginormA).compareTo(ginormACopy);
+    }
+
+    @Benchmark
+    public int bigIntegerCompareTo() {
+        return bigA.compareTo(bigACopy);
+    }
+
+    @Benchmark
+    public Object ginormIntDiv() throws Throwable {
+        return (Object)DIV.invokeExact(ginormA, ginormDivisor);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerDiv() {
+        return bigA.divide(bigDivisor);
+    }
+
+    @Benchmark
+    public Object ginormIntMod() throws Throwable {
+        return (Object)MOD.invokeExact(ginormA, ginormDivisor);
+    }
+
+    @Benchmark
+    public BigInteger bigIntegerMod() {
+        return bigA.remainder(bigDivisor);
+    }
+
+    /**
+     * Runs every benchmark in this class with the GC profiler, or only the
+     * ones whose names match the given regular expressions.
+     */
+    public static void main(String[] args) throws RunnerException {
+        OptionsBuilder builder = new OptionsBuilder();
+        if (args.length == 0) {
+            builder.include(GinormIntBenchmark.class.getName());
+        }
+        for (String pattern : args) {
+            builder.include(GinormIntBenchmark.class.getName() + "." + pattern);
+        }
+        Options options = builder.addProfiler(GCProfiler.class).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Filename: AntitheticSampler.java
+ * Description: Antithetic variates over another sampler. Points come in
+ *              pairs: an even point is the next point p of the base
+ *              sampler, and the odd point after it is its reflection
+ *              nextDown(1) - p. Reflecting about the largest double below 1
+ *              rather than 1 keeps a base point of 0 inside [0, 1)^d.
+ *              For integrands that rise or fall across the cube, like the
+ *              circle test, the two halves of each pair err in opposite
+ *              directions and partly cancel.
+ * Author:
+ * Date:
+ */
+public class AntitheticSampler implements Sampler {
+    private static final double REFLECT_ABOUT = Math.nextDown(1.0);
+
+    private final Sampler base;
+
+    public AntitheticSampler(Sampler base) {
+        this.base = base;
+    }
+
+    @Override
+    public int dimensions() {
+        return base.dimensions();
+    }
+
+    @Override
+    public Sampler forSamples(long samples) {
+        return new AntitheticSampler(base.forSamples((samples + 1) / 2));
+    }
+
+    @Override
+    public void fill(long first, int count, double[][] points) {
+        long firstPair = first / 2;
+        int pairs = (int)((first + count + 1) / 2 - firstPair);
+        double[][] basePoints = new double[points.length][pairs];
+        base.fill(firstPair, pairs, basePoints);
+        for (int i = 0; i < count; i++) {
+            long index = first + i;
+            int pair = (int)(index / 2 - firstPair);
+            for (int d = 0; d < points.length; d++) {
+                double p = basePoints[d][pair];
+                points[d][i] = (index & 1) == 0 ? p : REFLECT_ABOUT - p;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Filename: HaltonSampler.java
+ * Description: The Halton low-discrepancy sequence. Coordinate d of point i
+ *              is the radical inverse of i + 1 in the d-th prime base: the
+ *              base-b digits of i + 1 mirrored around the radix point. The
+ *              points fill the cube far more evenly than random ones, so
+ *              the error falls close to 1/N instead of 1/sqrt(N).
+ * Author:
+ * Date:
+ */
+public class HaltonSampler implements Sampler {
+    private final int[] bases;
+
+    public HaltonSampler(int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("At least one dimension required");
+        }
+        bases = new int[dimensions];
+        int candidate = 2;
+        for (int d = 0; d < dimensions; d++) {
+            while (!isPrime(candidate)) {
+                candidate++;
+            }
+            bases[d] = candidate++;
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return bases.length;
+    }
+
+    @Override
+    public void fill(long first, int count, double[][] points) {
+        for (int d = 0; d < bases.length; d++) {
+            for (int i = 0; i < count; i++) {
+                points[d][i] = radicalInverse(first + i + 1, bases[d]);
+            }
+        }
+    }
+
+    /**
+     * Mirrors the base-b digits of n around the radix point.
+     */
+    private static double radicalInverse(long n, int base) {
+        double inverse = 0;
+        double scale = 1.0 / base;
+        while (n > 0) {
+            inverse += (n % base) * scale;
+            n /= base;
+            scale /= base;
+        }
+        return inverse;
+    }
+
+    private static boolean isPrime(int n) {
+        for (int factor = 2; factor * factor <= n; factor++) {
+            if (n % factor == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,65 @@
+import java.util.function.Predicate;
+
+/**
+ * Filename: Integrand.java
+ * Description: A function to integrate with MonteCarloIntegrator. Points are
+ *              handed over in batches, one primitive array per dimension, so
+ *              integrands that override valuesAt() can work a coordinate at
+ *              a time in tight loops the JIT vectorizes. Integrands that can
+ *              generate and evaluate points in one pass for some sampler
+ *              override sumBlock() instead.
+ * Author:
+ * Date:
+ */
+public interface Integrand {
+    /**
+     * Returns the value of the integrand at a point.
+     */
+    double valueAt(double[] point);
+
+    /**
+     * Writes the values at points 0 through count - 1 of a batch into out,
+     * where coordinate d of point i is points[d][i].
+     */
+    default void valuesAt(double[][] points, int count, double[] out) {
+        double[] point = new double[points.length];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < points.length; d++) {
+                point[d] = points[d][i];
+            }
+            out[i] = valueAt(point);
+        }
+    }
+
+    /**
+     * Returns the sum and the sum of squares of the integrand over points
+     * first through first + count - 1 of a sampler whose points are already
+     * in the integration box. The default fills the points BATCH_SIZE at a
+     * time and evaluates them with valuesAt().
+     */
+    default double[] sumBlock(Sampler points, long first, int count) {
+        int batchSize = Math.min(count, MonteCarloIntegrator.BATCH_SIZE);
+        double[][] batch = new double[points.dimensions()][batchSize];
+        double[] values = new double[batchSize];
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int done = 0; done < count; done += batchSize) {
+            int size = Math.min(batchSize, count - done);
+            points.fill(first + done, size, batch);
+            valuesAt(batch, size, values);
+            for (int i = 0; i < size; i++) {
+                sum += values[i];
+                sumOfSquares += values[i] * values[i];
+            }
+        }
+        return new double[] {sum, sumOfSquares};
+    }
+
+    /**
+     * Returns the integrand that is 1 inside a region and 0 outside it, whose
+     * integral is the region's volume.
+     */
+    static Integrand indicator(Predicate<double[]> region) {
+        return point -> region.test(point) ? 1 : 0;
+    }
+}
@@ -0,0 +1,306 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Filename: MonteCarloIntegrator.java
+ * Description: Monte Carlo integration over an N-dimensional box. Points come
+ *              from a Sampler in blocks of fixed size, and the integrand's
+ *              sum and sum of squares are kept per block, by default by
+ *              scaling the points into the box a batch at a time in
+ *              primitive arrays. Blocks run on a fork-join pool and are added
+ *              up in block order, so a seeded run gives the same result on
+ *              any number of threads. PiEstimator is this integrator applied
+ *              to a quarter circle in the unit square.
+ *
+ *              main() estimates the volume of the unit ball in n dimensions:
+ *                  java MonteCarloIntegrator dimensions samples [-seed s]
+ *                          [-threads n] [-sampler random|halton|sobol|stratified|antithetic]
+ * Author:
+ * Date:
+ */
+public class MonteCarloIntegrator {
+    /**
+     * Points per block of work, and per batch within a block. Block b of a
+     * run always holds the same points, whichever thread integrates it.
+     */
+    static final int BLOCK_SIZE = 1 << 20;
+    static final int BATCH_SIZE = 4096;
+
+    private final double[] lower;
+    private final double[] width;
+    private final double volume;
+    private final Sampler sampler;
+
+    /**
+     * Constructor takes in the corners of the box and a sampler with the
+     * same number of dimensions.
+     */
+    public MonteCarloIntegrator(double[] lower, double[] upper, Sampler sampler) {
+        if (lower.length != upper.length || lower.length != sampler.dimensions()) {
+            throw new IllegalArgumentException("Box corners and sampler must have the same dimensions");
+        }
+        this.lower = lower.clone();
+        this.width = new double[lower.length];
+        double product = 1;
+        for (int d = 0; d < lower.length; d++) {
+            width[d] = upper[d] - lower[d];
+            if (!(width[d] > 0)) {
+                throw new IllegalArgumentException("Upper corner must be above lower corner");
+            }
+            product *= width[d];
+        }
+        this.volume = product;
+        this.sampler = sampler;
+    }
+
+    public static void main(String[] args) {
+        try {
+            if (args.length < 2) {
+                throw new IllegalArgumentException("Usage: java MonteCarloIntegrator dimensions samples"
+                        + " [-seed s] [-threads n] [-sampler name]");
+            }
+            int dimensions = Integer.parseInt(args[0]);
+            long samples = Long.parseLong(args[1]);
+            long seed = new SplittableRandom().nextLong();
+            int threads = 1;
+            String samplerName = "random";
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("-seed") && i + 1 < args.length) {
+                    seed = Long.parseLong(args[++i]);
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-sampler") && i + 1 < args.length) {
+                    samplerName = args[++i];
+                } else {
+                    throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+            }
+
+            Integral integral = ballVolume(dimensions, Sampler.named(samplerName, seed, dimensions), samples, threads);
+            double exact = exactBallVolume(dimensions);
+            System.out.println(integral);
+            System.out.printf("exact %.10f  error %.3e%n", exact, Math.abs(integral.value() - exact));
+
+        } catch (NumberFormatException e) {
+            System.err.println("Arguments must be numbers");
+
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    /**
+     * Estimates the volume of the unit ball in the given number of
+     * dimensions by integrating its indicator over [-1, 1]^n.
+     */
+    public static Integral ballVolume(int dimensions, Sampler sampler, long samples, int threads) {
+        double[] lower = new double[dimensions];
+        double[] upper = new double[dimensions];
+        Arrays.fill(lower, -1);
+        Arrays.fill(upper, 1);
+        Integrand inBall = new Integrand() {
+            @Override
+            public double valueAt(double[] point) {
+                double sum = 0;
+                for (double x : point) {
+                    sum += x * x;
+                }
+                return sum <= 1 ? 1 : 0;
+            }
+
+            @Override
+            public void valuesAt(double[][] points, int count, double[] out) {
+                Arrays.fill(out, 0, count, 0);
+                for (double[] coordinates : points) {
+                    for (int i = 0; i < count; i++) {
+                        out[i] += coordinates[i] * coordinates[i];
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    out[i] = out[i] <= 1 ? 1 : 0;
+                }
+            }
+        };
+        return new MonteCarloIntegrator(lower, upper, sampler).integrate(inBall, samples, threads);
+    }
+
+    /**
+     * Returns the exact volume of the unit ball in n dimensions, from
+     * V(n) = V(n - 2) * 2 * pi / n with V(0) = 1 and V(1) = 2.
+     */
+    public static double exactBallVolume(int dimensions) {
+        double volume = dimensions % 2 == 0 ? 1 : 2;
+        for (int n = 2 + dimensions % 2; n <= dimensions; n += 2) {
+            volume *= 2 * Math.PI / n;
+        }
+        return volume;
+    }
+
+    /**
+     * Integrates f over the box with the first samples points of the
+     * sampler, as sampler.forSamples(samples) lays them out, on a fork-join
+     * pool with the given number of threads.
+     */
+    public Integral integrate(Integrand f, long samples, int threads) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("At least one sample required");
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread required");
+        }
+
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            return integrate(f, sampler.forSamples(samples), 0, samples, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Integrates f over the box with points first through first + samples - 1
+     * of the sampler as it is, on pool, or on the calling thread if pool is
+     * null. The sums of consecutive ranges add up to the sums of one run over
+     * all of them, so a run can be continued or split across processes.
+     */
+    public Integral integrate(Integrand f, long first, long samples, ForkJoinPool pool) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("At least one sample required");
+        } else if (first < 0) {
+            throw new IllegalArgumentException("First sample can't be negative");
+        }
+
+        return integrate(f, sampler, first, samples, pool);
+    }
+
+    /**
+     * Splits the points into BLOCK_SIZE blocks, has f sum each block, and adds
+     * the block sums in block order.
+     */
+    private Integral integrate(Integrand f, Sampler points, long first, long samples, ForkJoinPool pool) {
+        Sampler inBox = isUnitCube() ? points : new BoxSampler(points, lower, width);
+        long blocks = (samples + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        Stream<double[]> blockSums = LongStream.range(0, blocks).mapToObj(b -> {
+            long offset = first + b * BLOCK_SIZE;
+            return f.sumBlock(inBox, offset, (int)Math.min(BLOCK_SIZE, first + samples - offset));
+        });
+        double[][] sums;
+        if (pool == null) {
+            sums = blockSums.toArray(double[][]::new);
+        } else {
+            try {
+                sums = pool.submit(() -> blockSums.parallel().toArray(double[][]::new)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while integrating");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (double[] block : sums) {
+            sum += block[0];
+            sumOfSquares += block[1];
+        }
+        return new Integral(samples, sum, sumOfSquares, volume);
+    }
+
+    private boolean isUnitCube() {
+        for (int d = 0; d < lower.length; d++) {
+            if (lower[d] != 0 || width[d] != 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A sampler's points scaled from the unit cube into the box.
+     */
+    private static final class BoxSampler implements Sampler {
+        private final Sampler unit;
+        private final double[] lower;
+        private final double[] width;
+
+        BoxSampler(Sampler unit, double[] lower, double[] width) {
+            this.unit = unit;
+            this.lower = lower;
+            this.width = width;
+        }
+
+        @Override
+        public int dimensions() {
+            return unit.dimensions();
+        }
+
+        @Override
+        public void fill(long first, int count, double[][] points) {
+            unit.fill(first, count, points);
+            for (int d = 0; d < lower.length; d++) {
+                double[] coordinates = points[d];
+                for (int i = 0; i < count; i++) {
+                    coordinates[i] = lower[d] + width[d] * coordinates[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * The result of an integration: the estimate, which is the box volume
+     * times the mean of the integrand, and its standard error.
+     */
+    public static final class Integral {
+        private final long samples;
+        private final double sum;
+        private final double sumOfSquares;
+        private final double volume;
+
+        public Integral(long samples, double sum, double sumOfSquares, double volume) {
+            this.samples = samples;
+            this.sum = sum;
+            this.sumOfSquares = sumOfSquares;
+            this.volume = volume;
+        }
+
+        public long samples() {
+            return samples;
+        }
+
+        /**
+         * Sum of the integrand over the samples.
+         */
+        public double sum() {
+            return sum;
+        }
+
+        public double sumOfSquares() {
+            return sumOfSquares;
+        }
+
+        public double value() {
+            return volume * sum / samples;
+        }
+
+        /**
+         * Standard error of value() for independent random samples. It
+         * overstates the error of low-discrepancy samplers.
+         */
+        public double standardError() {
+            double mean = sum / samples;
+            double variance = Math.max(0, sumOfSquares / samples - mean * mean);
+            return volume * Math.sqrt(variance / samples);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("samples %d  integral %.10f  stderr %.3e", samples, value(), standardError());
+        }
+    }
+}
@@ -1,53 +1,542 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * Filename: PiEstimator.java
  * Description: Estimate pi based on randomly thrown darts.
+ *
+ *              Big runs can be split into shards that run in separate JVMs
+ *              and merged afterwards. Shard i of a seeded run throws darts
+ *              i * n through (i + 1) * n - 1 of the seed's stream, so merging
+ *              shards 0 through k - 1 gives exactly the estimate of one run
+ *              of k * n darts:
+ *                  java PiEstimator shard 42 0 100000000 shard0.txt &
+ *                  java PiEstimator shard 42 1 100000000 shard1.txt &
+ *                  wait
+ *                  java PiEstimator merge shard0.txt shard1.txt
  * Author: Natalie Lau
  * Date: 01/22/21
  */
 public class PiEstimator {
+    private static final boolean VECTOR_KERNEL = vectorKernelAvailable();
+
+    /**
+     * Two-sided 95% quantile of the standard normal distribution, for the
+     * confidence intervals.
+     */
+    private static final double Z_95 = 1.959963984540054;
+
+    /**
+     * Indicator of the quarter circle in the unit square, whose integral is
+     * pi / 4.
+     */
+    private static final Integrand QUARTER_CIRCLE = new QuarterCircle();
+
+    private static final String USAGE = "Usage: java PiEstimator darts [-seed s] [-threads n]"
+            + " [-every n] [-precision e] [-sampler random|halton|sobol|stratified|antithetic] [-report]\n"
+            + "       java PiEstimator shard seed index darts file [-threads n]\n"
+            + "       java PiEstimator merge file...";
+
     public static void main(String[] args) {
         try {
-            if (args.length != 1) {
-                throw new IllegalArgumentException("Exactly one argument required");
-            } else if (Integer.parseInt(args[0]) < 1) {
+            if (args.length < 1) {
+                throw new IllegalArgumentException(USAGE);
+            } else if (args[0].equals("shard")) {
+                runShard(args);
+                return;
+            } else if (args[0].equals("merge")) {
+                List<Shard> shards = new ArrayList<>();
+                for (int i = 1; i < args.length; i++) {
+                    shards.add(Shard.read(Paths.get(args[i])));
+                }
+                System.out.println(Shard.merge(shards));
+                return;
+            } else if (Long.parseLong(args[0]) < 1) {
                 throw new IllegalArgumentException("At least one dart required");
             }
 
-            int totalDarts = Integer.parseInt(args[0]);
-            String piString = Double.toString(estimate(totalDarts));
-            System.out.println(piString);
+            long totalDarts = Long.parseLong(args[0]);
+            Long seed = null;
+            int threads = 1;
+            long every = 0;
+            double precision = 0;
+            String samplerName = null;
+            boolean report = false;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("-seed") && i + 1 < args.length) {
+                    seed = Long.parseLong(args[++i]);
+                } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("-every") && i + 1 < args.length) {
+                    every = Long.parseLong(args[++i]);
+                } else if (args[i].equals("-precision") && i + 1 < args.length) {
+                    precision = Double.parseDouble(args[++i]);
+                } else if (args[i].equals("-sampler") && i + 1 < args.length) {
+                    samplerName = args[++i];
+                } else if (args[i].equals("-report")) {
+                    report = true;
+                } else {
+                    throw new IllegalArgumentException(USAGE);
+                }
+            }
+            if (seed == null) {
+                seed = new SplittableRandom().nextLong();
+            }
+
+            if (samplerName != null && (every > 0 || precision > 0)) {
+                throw new IllegalArgumentException("Checkpoints and precision need plain random darts");
+            }
+
+            Sampler sampler = Sampler.named(samplerName == null ? "random" : samplerName, seed, 2);
+            if (report) {
+                reportError(sampler, totalDarts, threads, System.out);
+            } else if (samplerName != null) {
+                System.out.println(estimate(sampler, totalDarts, threads));
+            } else if (every > 0 || precision > 0) {
+                Estimate estimate = converge(totalDarts, seed, threads, every, precision, System.out);
+                System.out.println(estimate.pi());
+            } else {
+                String piString = Double.toString(estimate(totalDarts, seed, threads));
+                System.out.println(piString);
+            }
 
         } catch (NumberFormatException e) {
-            System.err.println("Argument must be an integer");
+            System.err.println("Arguments must be numbers");
 
         } catch (IllegalArgumentException e) {
             System.err.println(e.getMessage());
+
+        } catch (IOException e) {
+            System.err.println("Shard file error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Runs the shard command: shard seed index darts file [-threads n].
+     */
+    private static void runShard(String[] args) throws IOException {
+        if (args.length != 5 && !(args.length == 7 && args[5].equals("-threads"))) {
+            throw new IllegalArgumentException(USAGE);
         }
+        long seed = Long.parseLong(args[1]);
+        long index = Long.parseLong(args[2]);
+        long darts = Long.parseLong(args[3]);
+        int threads = args.length == 7 ? Integer.parseInt(args[6]) : 1;
+        shard(seed, index, darts, threads).write(Paths.get(args[4]));
+    }
+
+    /**
+     * Throws shard index of a seeded run split into shards of the given
+     * number of darts: darts index * darts through (index + 1) * darts - 1
+     * of the seed's stream.
+     */
+    public static Shard shard(long seed, long index, long darts, int threads) {
+        if (darts < 1) {
+            throw new IllegalArgumentException("At least one dart required");
+        } else if (index < 0) {
+            throw new IllegalArgumentException("Shard index can't be negative");
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread required");
+        }
+
+        long first;
+        try {
+            first = Math.multiplyExact(index, darts);
+            Math.addExact(first, darts);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Shard is past the end of the stream");
+        }
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            long hits = countHits(seed, first, darts, pool);
+            return new Shard(seed, first, darts, hits, 16.0 * hits);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    public static double estimate(long darts) {
+        if (darts < 1) {
+            throw new IllegalArgumentException("At least one dart required");
+        }
+
+        return estimate(darts, new SplittableRandom().nextLong(), 1);
     }
 
-    public static double estimate(int darts) {
-        if (darts <= 1) {
+    /**
+     * Estimates pi from the darts of a seeded stream, integrated by
+     * MonteCarloIntegrator in fixed-size blocks on a fork-join pool with the
+     * given number of threads. Each block jumps straight to its offset in
+     * the stream and the hit counts are summed at the end, so the estimate
+     * depends only on the seed and the dart count, never on the thread count.
+     */
+    public static double estimate(long darts, long seed, int threads) {
+        if (darts < 1) {
             throw new IllegalArgumentException("At least one dart required");
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread required");
         }
 
-        int totalHits = 0;
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            long totalHits = countHits(seed, 0, darts, pool);
+            return (double)totalHits / (double)darts * 4;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Throws up to maxDarts darts of a seeded stream, printing a running
+     * estimate with its standard error and 95% confidence interval to out
+     * after every checkpoint darts. Stops at the first checkpoint where the
+     * half-width of the interval is at most precision. A checkpoint of 0
+     * prints nothing along the way, and a precision of 0 never stops early;
+     * checkpoints are then every 2^24 darts so precision can still be checked.
+     * Stopping early gives the same estimate as a run of that many darts.
+     */
+    public static Estimate converge(long maxDarts, long seed, int threads, long checkpoint,
+            double precision, PrintStream out) {
+        if (maxDarts < 1) {
+            throw new IllegalArgumentException("At least one dart required");
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread required");
+        } else if (checkpoint < 0 || precision < 0) {
+            throw new IllegalArgumentException("Checkpoints and precision can't be negative");
+        }
+
+        long step = checkpoint > 0 ? checkpoint : 16L * MonteCarloIntegrator.BLOCK_SIZE;
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            Estimate estimate = new Estimate(0, 0);
+            while (estimate.darts() < maxDarts) {
+                long darts = Math.min(step, maxDarts - estimate.darts());
+                long hits = countHits(seed, estimate.darts(), darts, pool);
+                estimate = new Estimate(estimate.darts() + darts, estimate.hits() + hits);
+                if (checkpoint > 0) {
+                    out.println(estimate);
+                }
+                if (precision > 0 && estimate.halfWidth() <= precision) {
+                    break;
+                }
+            }
+            return estimate;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Estimates pi from the first samples points of a two-dimensional
+     * sampler, as sampler.forSamples(samples) lays them out. Blocks of points
+     * are counted on a fork-join pool with the given number of threads.
+     */
+    public static double estimate(Sampler sampler, long samples, int threads) {
+        if (samples < 1) {
+            throw new IllegalArgumentException("At least one dart required");
+        } else if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread required");
+        } else if (sampler.dimensions() != 2) {
+            throw new IllegalArgumentException("Sampler must have two dimensions");
+        }
+
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            return 4.0 * countHits(sampler.forSamples(samples), 0, samples, pool) / samples;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Prints the achieved error |estimate - pi| of a two-dimensional sampler
+     * at sample counts growing by factors of 2 up to maxSamples, so every
+     * other count isn't a perfect square and the stratified sampler is also
+     * measured with a partial grid. Each count is a separate run, so
+     * samplers that size themselves to the run are measured fairly.
+     */
+    public static void reportError(Sampler sampler, long maxSamples, int threads, PrintStream out) {
+        long samples = 1024;
+        while (true) {
+            long n = Math.min(samples, maxSamples);
+            double pi = estimate(sampler, n, threads);
+            out.printf("samples %d  pi %.10f  error %.3e%n", n, pi, Math.abs(pi - Math.PI));
+            if (n == maxSamples) {
+                return;
+            }
+            samples *= 2;
+        }
+    }
+
+    /**
+     * Counts the hits among darts first through first + darts - 1 of the
+     * stream with the given seed.
+     */
+    private static long countHits(long seed, long first, long darts, ForkJoinPool pool) {
+        return countHits(new RandomSampler(seed, 2), first, darts, pool);
+    }
+
+    /**
+     * Counts the hits among points first through first + samples - 1 of a
+     * sampler by integrating the quarter circle over the unit square.
+     */
+    private static long countHits(Sampler sampler, long first, long samples, ForkJoinPool pool) {
+        MonteCarloIntegrator square = new MonteCarloIntegrator(new double[2], new double[] {1, 1}, sampler);
+        return (long)square.integrate(QUARTER_CIRCLE, first, samples, pool).sum();
+    }
 
+    /**
+     * Counts how many of the darts new SplittableRandom(seed) would throw,
+     * calling nextDouble() for x and then y, land in the unit circle. Uses
+     * the vector kernel when the platform has it, and the scalar loop
+     * otherwise; both give the same count.
+     */
+    public static long countHits(long seed, int darts) {
+        if (VECTOR_KERNEL) {
+            return VectorDartKernel.countHits(seed, darts);
+        }
+        long state = seed;
+        long hits = 0;
         for (int i = 0; i < darts; i++) {
-            boolean inCircle = throwDart();
-            if (inCircle) {
-                totalHits++;
+            double x = SplitMix.unitDouble(state += SplitMix.GAMMA);
+            double y = SplitMix.unitDouble(state += SplitMix.GAMMA);
+            if (x * x + y * y <= 1) {
+                hits++;
             }
         }
-        double pi = (double)totalHits / (double)darts * 4;
-        return pi;
+        return hits;
     }
 
-    public static boolean throwDart() {
-        double x = Math.random() - 1;
-        double y = Math.random() - 1;
-        if (Math.pow(x, 2) + Math.pow(y, 2) <= 1) {
+    /**
+     * Returns true if the Vector API is available at run time, which needs
+     * --add-modules jdk.incubator.vector, and the preferred vectors hold at
+     * least two darts' worth of lanes. With a single lane the API runs
+     * without vector instructions and is slower than the scalar loop.
+     */
+    private static boolean vectorKernelAvailable() {
+        try {
+            if (VectorDartKernel.lanes() < 2) {
+                return false;
+            }
+            VectorDartKernel.countHits(0, 1);
             return true;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Running totals of a dart run: the darts, the hits, and the sum of
+     * squares of the per-dart estimates, 4 for a hit and 0 for a miss. The
+     * standard error of the estimate is sqrt(variance / darts), with the
+     * variance taken from the sum of squares; for plain darts that is
+     * 4 * sqrt(p * (1 - p) / darts) with p the observed hit rate.
+     */
+    public static final class Estimate {
+        private final long darts;
+        private final long hits;
+        private final double sumOfSquares;
+
+        public Estimate(long darts, long hits) {
+            this(darts, hits, 16.0 * hits);
+        }
+
+        public Estimate(long darts, long hits, double sumOfSquares) {
+            this.darts = darts;
+            this.hits = hits;
+            this.sumOfSquares = sumOfSquares;
+        }
+
+        public long darts() {
+            return darts;
+        }
+
+        public long hits() {
+            return hits;
+        }
+
+        public double pi() {
+            return 4.0 * hits / darts;
+        }
+
+        public double sumOfSquares() {
+            return sumOfSquares;
+        }
+
+        public double standardError() {
+            double mean = pi();
+            return Math.sqrt(Math.max(0, sumOfSquares / darts - mean * mean) / darts);
+        }
+
+        /**
+         * Half the width of the 95% confidence interval around pi().
+         */
+        public double halfWidth() {
+            return Z_95 * standardError();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("darts %d  pi %.10f  stderr %.3e  95%% CI [%.10f, %.10f]",
+                    darts, pi(), standardError(), pi() - halfWidth(), pi() + halfWidth());
+        }
+    }
+
+    /**
+     * The quarter-circle integrand. On plain random points, whose darts
+     * come from a seeded stream, a block is counted with countHits(seed,
+     * darts), the vector kernel where there is one, without ever filling
+     * point arrays; other samplers go through the batched default.
+     */
+    private static final class QuarterCircle implements Integrand {
+        @Override
+        public double valueAt(double[] point) {
+            return point[0] * point[0] + point[1] * point[1] <= 1 ? 1 : 0;
+        }
+
+        @Override
+        public void valuesAt(double[][] points, int count, double[] out) {
+            double[] xs = points[0];
+            double[] ys = points[1];
+            for (int i = 0; i < count; i++) {
+                out[i] = xs[i] * xs[i] + ys[i] * ys[i] <= 1 ? 1 : 0;
+            }
+        }
+
+        @Override
+        public double[] sumBlock(Sampler points, long first, int count) {
+            if (points instanceof RandomSampler) {
+                long hits = countHits(((RandomSampler)points).seed() + 2 * SplitMix.GAMMA * first, count);
+                return new double[] {hits, hits};
+            }
+            return Integrand.super.sumBlock(points, first, count);
+        }
+    }
+
+    /**
+     * Partial result of one shard: which darts of which seeded stream it
+     * threw, the hit count, and the sum of squares of the per-dart estimates,
+     * 4 for a hit and 0 for a miss. Stored as one line of text.
+     */
+    public static final class Shard {
+        private static final String HEADER = "pi-shard";
+
+        private final long seed;
+        private final long first;
+        private final long darts;
+        private final long hits;
+        private final double sumOfSquares;
+
+        public Shard(long seed, long first, long darts, long hits, double sumOfSquares) {
+            this.seed = seed;
+            this.first = first;
+            this.darts = darts;
+            this.hits = hits;
+            this.sumOfSquares = sumOfSquares;
+        }
+
+        public long seed() {
+            return seed;
+        }
+
+        public long first() {
+            return first;
+        }
+
+        public long darts() {
+            return darts;
+        }
+
+        public long hits() {
+            return hits;
+        }
+
+        public double sumOfSquares() {
+            return sumOfSquares;
+        }
+
+        public void write(Path file) throws IOException {
+            String line = HEADER + " " + seed + " " + first + " " + darts + " " + hits + " " + sumOfSquares + "\n";
+            Files.write(file, line.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        /**
+         * Reads a shard file, checking that it describes a real run: at least
+         * one dart, a hit count between 0 and the darts, a range of darts
+         * that starts at or after dart 0 and fits in the stream, and the sum
+         * of squares those hits give.
+         *
+         * @throws IOException if the file can't be read or isn't a valid shard
+         */
+        public static Shard read(Path file) throws IOException {
+            String[] fields = new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim().split(" ");
+            if (fields.length != 6 || !fields[0].equals(HEADER)) {
+                throw new IOException(file + " is not a shard file");
+            }
+            Shard shard;
+            try {
+                shard = new Shard(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+                        Long.parseLong(fields[4]), Double.parseDouble(fields[5]));
+            } catch (NumberFormatException e) {
+                throw new IOException(file + " has a field that isn't a number");
+            }
+            if (shard.darts < 1) {
+                throw new IOException(file + " has no darts");
+            } else if (shard.hits < 0 || shard.hits > shard.darts) {
+                throw new IOException(file + " has " + shard.hits + " hits for " + shard.darts + " darts");
+            } else if (shard.first < 0 || shard.first > Long.MAX_VALUE - shard.darts) {
+                throw new IOException(file + " starts at dart " + shard.first + ", outside the stream");
+            } else if (shard.sumOfSquares != 16.0 * shard.hits) {
+                throw new IOException(file + " has a sum of squares that doesn't match its hits");
+            }
+            return shard;
+        }
+
+        /**
+         * Combines shards of one seeded run into an estimate. The shards may
+         * come in any order and leave gaps, but must not overlap, since an
+         * overlap would count the same darts twice.
+         */
+        public static Estimate merge(List<Shard> shards) {
+            if (shards.isEmpty()) {
+                throw new IllegalArgumentException("At least one shard required");
+            }
+            List<Shard> sorted = new ArrayList<>(shards);
+            sorted.sort(Comparator.comparingLong(Shard::first));
+            long darts = 0;
+            long hits = 0;
+            double sumOfSquares = 0;
+            Shard previous = null;
+            for (Shard shard : sorted) {
+                if (shard.seed != sorted.get(0).seed) {
+                    throw new IllegalArgumentException("Shards must come from the same seed");
+                } else if (previous != null && shard.first - previous.first < previous.darts) {
+                    throw new IllegalArgumentException("Shards at darts " + previous.first + " and "
+                            + shard.first + " overlap");
+                }
+                darts += shard.darts;
+                hits += shard.hits;
+                sumOfSquares += shard.sumOfSquares;
+                previous = shard;
+            }
+            return new Estimate(darts, hits, sumOfSquares);
         }
-        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+/**
+ * Filename: RandomSampler.java
+ * Description: Pseudo-random points. Point i is the i-th group of dimensions
+ *              doubles that new SplittableRandom(seed) would give, computed
+ *              directly from its index, so with two dimensions these are
+ *              exactly the darts PiEstimator throws for the same seed.
+ * Author:
+ * Date:
+ */
+public class RandomSampler implements Sampler {
+    private final long seed;
+    private final int dimensions;
+
+    public RandomSampler(long seed, int dimensions) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("At least one dimension required");
+        }
+        this.seed = seed;
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * Returns the seed of the stream the points come from.
+     */
+    long seed() {
+        return seed;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public void fill(long first, int count, double[][] points) {
+        for (int d = 0; d < dimensions; d++) {
+            double[] coordinates = points[d];
+            long state = seed + (first * dimensions + d + 1) * SplitMix.GAMMA;
+            long step = dimensions * SplitMix.GAMMA;
+            for (int i = 0; i < count; i++) {
+                coordinates[i] = SplitMix.unitDouble(state);
+                state += step;
+            }
+        }
+    }
+}
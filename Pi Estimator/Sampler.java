@@ -0,0 +1,52 @@
+/**
+ * Filename: Sampler.java
+ * Description: A source of sample points in the unit cube [0, 1)^d. Points
+ *              are numbered, and any range of them can be generated on its
+ *              own, so a run can be split into blocks that are filled on
+ *              different threads and still give the same points.
+ * Author:
+ * Date:
+ */
+public interface Sampler {
+    /**
+     * Returns the number of coordinates in each point.
+     */
+    int dimensions();
+
+    /**
+     * Writes points first through first + count - 1 into points, which holds
+     * one array per dimension: coordinate d of point first + i goes in
+     * points[d][i].
+     */
+    void fill(long first, int count, double[][] points);
+
+    /**
+     * Returns the sampler to use for a run of exactly the given number of
+     * samples. Samplers whose layout depends on the sample count, such as a
+     * stratified grid, return one sized for that run; the rest return this.
+     */
+    default Sampler forSamples(long samples) {
+        return this;
+    }
+
+    /**
+     * Returns the sampler with the given name: random, halton, sobol,
+     * stratified or antithetic.
+     */
+    static Sampler named(String name, long seed, int dimensions) {
+        switch (name) {
+            case "random":
+                return new RandomSampler(seed, dimensions);
+            case "halton":
+                return new HaltonSampler(dimensions);
+            case "sobol":
+                return new SobolSampler(dimensions);
+            case "stratified":
+                return new StratifiedSampler(seed, dimensions, 1);
+            case "antithetic":
+                return new AntitheticSampler(new RandomSampler(seed, dimensions));
+            default:
+                throw new IllegalArgumentException("Sampler must be random, halton, sobol, stratified or antithetic");
+        }
+    }
+}
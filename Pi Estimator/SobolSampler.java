@@ -0,0 +1,114 @@
+/**
+ * Filename: SobolSampler.java
+ * Description: The Sobol low-discrepancy sequence, with the primitive
+ *              polynomials and initial direction numbers of Joe and Kuo for
+ *              up to 13 dimensions. Every run of 2^k points starting at a
+ *              multiple of 2^k is a digital net, so errors are smallest at
+ *              powers of two. Points are built in Gray-code order: each one
+ *              is the previous one with a single direction number XORed in.
+ * Author:
+ * Date:
+ */
+public class SobolSampler implements Sampler {
+    /**
+     * Bits of precision per coordinate, which also bounds the number of
+     * points at 2^BITS.
+     */
+    private static final int BITS = 52;
+
+    /**
+     * For dimensions 2 and up: the degree s of the primitive polynomial, its
+     * inner coefficients a as bits, and the initial direction numbers m.
+     */
+    private static final int[][] POLYNOMIALS = {
+        {1, 0, 1},
+        {2, 1, 1, 3},
+        {3, 1, 1, 3, 1},
+        {3, 2, 1, 1, 1},
+        {4, 1, 1, 1, 3, 3},
+        {4, 4, 1, 3, 5, 13},
+        {5, 2, 1, 1, 5, 5, 17},
+        {5, 4, 1, 1, 5, 5, 5},
+        {5, 7, 1, 1, 7, 11, 19},
+        {5, 11, 1, 1, 5, 1, 1},
+        {5, 13, 1, 1, 1, 3, 11},
+        {5, 14, 1, 3, 5, 5, 31}
+    };
+
+    public static final int MAX_DIMENSIONS = POLYNOMIALS.length + 1;
+
+    /**
+     * Number of distinct points in the sequence.
+     */
+    public static final long MAX_POINTS = 1L << BITS;
+
+    /**
+     * directions[d][k] is direction number k + 1 of dimension d, scaled to
+     * BITS bits.
+     */
+    private final long[][] directions;
+
+    public SobolSampler(int dimensions) {
+        if (dimensions < 1 || dimensions > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("Sobol sampler supports 1 to " + MAX_DIMENSIONS + " dimensions");
+        }
+        directions = new long[dimensions][BITS];
+        for (int k = 0; k < BITS; k++) {
+            directions[0][k] = 1L << (BITS - 1 - k);
+        }
+        for (int d = 1; d < dimensions; d++) {
+            int[] polynomial = POLYNOMIALS[d - 1];
+            int s = polynomial[0];
+            int a = polynomial[1];
+            long[] v = directions[d];
+            for (int k = 0; k < s; k++) {
+                v[k] = (long)polynomial[2 + k] << (BITS - 1 - k);
+            }
+            for (int k = s; k < BITS; k++) {
+                v[k] = v[k - s] ^ (v[k - s] >>> s);
+                for (int j = 1; j < s; j++) {
+                    if (((a >>> (s - 1 - j)) & 1) != 0) {
+                        v[k] ^= v[k - j];
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return directions.length;
+    }
+
+    @Override
+    public Sampler forSamples(long samples) {
+        if (samples > MAX_POINTS) {
+            throw new IllegalArgumentException("Sobol sampler has only 2^" + BITS + " points");
+        }
+        return this;
+    }
+
+    @Override
+    public void fill(long first, int count, double[][] points) {
+        if (first < 0 || count > MAX_POINTS - first) {
+            throw new IllegalArgumentException("Sobol sampler has only 2^" + BITS + " points");
+        }
+        for (int d = 0; d < directions.length; d++) {
+            long[] v = directions[d];
+            long gray = first ^ (first >>> 1);
+            long x = 0;
+            for (int k = 0; gray != 0; k++, gray >>>= 1) {
+                if ((gray & 1) != 0) {
+                    x ^= v[k];
+                }
+            }
+            for (int i = 0; i < count - 1; i++) {
+                points[d][i] = x * 0x1.0p-52;
+                x ^= v[Long.numberOfTrailingZeros(first + i + 1)];
+            }
+            if (count > 0) {
+                points[d][count - 1] = x * 0x1.0p-52;
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Filename: SplitMix.java
+ * Description: The one definition of the random stream every sampler and
+ *              dart kernel here draws from. It is the stream of
+ *              java.util.SplittableRandom: draw k (counting from 1) of
+ *              new SplittableRandom(seed) is mix64(seed + k * GAMMA), and
+ *              nextDouble() keeps its top 53 bits. Because each draw depends
+ *              only on its index, any part of a run can be computed on its
+ *              own, which is what makes seeded runs reproducible across
+ *              threads, blocks, shards and kernels.
+ * Author:
+ * Date:
+ */
+final class SplitMix {
+    /**
+     * Seed increment between draws. Adding n * GAMMA to a seed skips n draws.
+     */
+    static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * Multipliers of the mixing function, for kernels that apply it to many
+     * values at once.
+     */
+    static final long MIX_MULTIPLIER_1 = 0xbf58476d1ce4e5b9L;
+    static final long MIX_MULTIPLIER_2 = 0x94d049bb133111ebL;
+
+    /**
+     * Scale from the top 53 bits of a draw to a double in [0, 1).
+     */
+    static final double DOUBLE_UNIT = 0x1.0p-53;
+
+    private SplitMix() {
+    }
+
+    /**
+     * SplittableRandom's mixing function.
+     */
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * MIX_MULTIPLIER_1;
+        z = (z ^ (z >>> 27)) * MIX_MULTIPLIER_2;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Returns the double in [0, 1) drawn at a seed value: draw k of a stream
+     * with the given seed is unitDouble(seed + k * GAMMA).
+     */
+    static double unitDouble(long state) {
+        return (mix64(state) >>> 11) * DOUBLE_UNIT;
+    }
+}
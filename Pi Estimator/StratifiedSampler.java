@@ -0,0 +1,76 @@
+/**
+ * Filename: StratifiedSampler.java
+ * Description: Jittered stratified sampling. The cube is cut into a grid of
+ *              equal cells and the points visit the cells in turn, each at a
+ *              random position inside its cell, so every region gets its
+ *              share of samples. forSamples() sizes the grid to about one
+ *              cell per sample. Only whole rounds of the grid are
+ *              stratified: when the run isn't a multiple of the cell count,
+ *              the samples left over after the last full round are plain
+ *              random points in the whole cube, so no cell is weighted more
+ *              than another.
+ * Author:
+ * Date:
+ */
+public class StratifiedSampler implements Sampler {
+    private final long seed;
+    private final int dimensions;
+    private final int cellsPerAxis;
+    private final long cells;
+    private final long stratified;
+
+    /**
+     * Creates a sampler that visits the cells in turn indefinitely. A run
+     * should then be a whole number of rounds of the grid.
+     */
+    public StratifiedSampler(long seed, int dimensions, int cellsPerAxis) {
+        this(seed, dimensions, cellsPerAxis, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a sampler for a run of the given number of samples, which
+     * stratifies as many full rounds of the grid as fit and makes the rest
+     * plain random points.
+     */
+    public StratifiedSampler(long seed, int dimensions, int cellsPerAxis, long samples) {
+        if (dimensions < 1) {
+            throw new IllegalArgumentException("At least one dimension required");
+        } else if (cellsPerAxis < 1) {
+            throw new IllegalArgumentException("At least one cell per axis required");
+        }
+        this.seed = seed;
+        this.dimensions = dimensions;
+        this.cellsPerAxis = cellsPerAxis;
+        long total = 1;
+        for (int d = 0; d < dimensions; d++) {
+            total = Math.multiplyExact(total, cellsPerAxis);
+        }
+        cells = total;
+        stratified = samples / cells * cells;
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    @Override
+    public Sampler forSamples(long samples) {
+        int perAxis = (int)Math.max(1, Math.floor(Math.pow(samples, 1.0 / dimensions) + 1e-9));
+        return new StratifiedSampler(seed, dimensions, perAxis, samples);
+    }
+
+    @Override
+    public void fill(long first, int count, double[][] points) {
+        RandomSampler jitter = new RandomSampler(seed, dimensions);
+        jitter.fill(first, count, points);
+        int inGrid = (int)Math.max(0, Math.min(count, stratified - first));
+        for (int i = 0; i < inGrid; i++) {
+            long cell = (first + i) % cells;
+            for (int d = 0; d < dimensions; d++) {
+                points[d][i] = (cell % cellsPerAxis + points[d][i]) / cellsPerAxis;
+                cell /= cellsPerAxis;
+            }
+        }
+    }
+}
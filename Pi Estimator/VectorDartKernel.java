@@ -0,0 +1,99 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Filename: VectorDartKernel.java
+ * Description: Throws darts with the Vector API, a whole vector of darts per
+ *              instruction. Each lane runs the SplittableRandom algorithm on
+ *              its own dart's seeds, so the darts are exactly the ones a
+ *              SplittableRandom with the same seed would give, without
+ *              writing any coordinates to memory. Needs the incubating
+ *              jdk.incubator.vector module:
+ *                  javac --add-modules jdk.incubator.vector *.java
+ *                  java --add-modules jdk.incubator.vector PiEstimator 1000000000
+ *              Without the module at run time, or on a CPU whose preferred
+ *              vectors hold fewer than two longs, PiEstimator falls back to
+ *              its scalar loop.
+ * Author:
+ * Date:
+ */
+public class VectorDartKernel {
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Darts thrown per call to countBlock(). Keeping the vector loop in its
+     * own short method gets it fully compiled early instead of waiting for
+     * on-stack replacement of one long loop.
+     */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /**
+     * Returns the number of darts thrown per vector operation: the lane count
+     * of the preferred vector species. Below 2 the platform has no useful
+     * vector support and the kernel is slower than the scalar loop.
+     */
+    public static int lanes() {
+        return Math.min(LONGS.length(), DOUBLES.length());
+    }
+
+    /**
+     * Counts how many of the darts new SplittableRandom(seed) would throw,
+     * calling nextDouble() for x and then y, land in the unit circle.
+     */
+    public static long countHits(long seed, int darts) {
+        long hits = 0;
+        for (long first = 0; first < darts; first += BLOCK_SIZE) {
+            hits += countBlock(seed + 2 * SplitMix.GAMMA * first, (int)Math.min(BLOCK_SIZE, darts - first));
+        }
+        return hits;
+    }
+
+    /**
+     * Counts the hits among the first darts of the stream with the given seed.
+     */
+    private static long countBlock(long seed, int darts) {
+        int lanes = LONGS.length();
+        LongVector xSeeds = LongVector.zero(LONGS).addIndex(1).mul(2 * SplitMix.GAMMA).add(seed + SplitMix.GAMMA);
+        LongVector ySeeds = xSeeds.add(SplitMix.GAMMA);
+        LongVector step = LongVector.broadcast(LONGS, 2 * SplitMix.GAMMA * lanes);
+        long hits = 0;
+        int dart = 0;
+        for (; dart <= darts - lanes; dart += lanes) {
+            DoubleVector x = unitDouble(mix64(xSeeds));
+            DoubleVector y = unitDouble(mix64(ySeeds));
+            VectorMask<Double> inCircle = x.mul(x).add(y.mul(y)).compare(VectorOperators.LE, 1.0);
+            hits += inCircle.trueCount();
+            xSeeds = xSeeds.add(step);
+            ySeeds = ySeeds.add(step);
+        }
+        for (; dart < darts; dart++) {
+            double x = SplitMix.unitDouble(seed + (2L * dart + 1) * SplitMix.GAMMA);
+            double y = SplitMix.unitDouble(seed + (2L * dart + 2) * SplitMix.GAMMA);
+            if (x * x + y * y <= 1) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * SplitMix.mix64(), on every lane.
+     */
+    private static LongVector mix64(LongVector z) {
+        z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 30)).mul(SplitMix.MIX_MULTIPLIER_1);
+        z = z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 27)).mul(SplitMix.MIX_MULTIPLIER_2);
+        return z.lanewise(VectorOperators.XOR, z.lanewise(VectorOperators.LSHR, 31));
+    }
+
+    /**
+     * Turns the top 53 bits of each lane into a double in [0, 1).
+     */
+    private static DoubleVector unitDouble(LongVector z) {
+        return ((DoubleVector)z.lanewise(VectorOperators.LSHR, 11).convertShape(VectorOperators.L2D, DOUBLES, 0))
+                .mul(SplitMix.DOUBLE_UNIT);
+    }
+}
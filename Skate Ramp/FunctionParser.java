@@ -0,0 +1,477 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Filename: FunctionParser.java
+ * Description: Parses a function of x, such as "exp(-x^2) * cos(3x)", and
+ *              compiles it straight into a tree of small lambdas, one per
+ *              operation, so evaluating it is a chain of direct calls rather
+ *              than a walk over parsed nodes. A run of + and -, or of * and
+ *              /, becomes a single lambda over all its operands, so the tree
+ *              is only as deep as the expression's nesting. Constant
+ *              subexpressions are folded while parsing, operations with a
+ *              constant operand get their own lambdas, and small integer
+ *              powers become multiplies.
+ *
+ *              Expressions have + - * / ^, unary minus, parentheses, numbers,
+ *              x, the constants pi and e, and the functions sin, cos, tan,
+ *              asin, acos, atan, sinh, cosh, tanh, exp, log (natural), log10,
+ *              sqrt, cbrt and abs. A number, parenthesis or function right
+ *              after a number multiplies it, as in 3x or 2sin(x).
+ * Author:
+ * Date:
+ */
+final class FunctionParser {
+    /**
+     * Integer exponents up to this size are compiled to repeated multiplies
+     * instead of Math.pow().
+     */
+    private static final int MAX_MULTIPLY_POWER = 64;
+
+    /**
+     * Deepest nesting of parentheses, unary operators, exponents and function
+     * calls allowed. Parsing and evaluation both recurse a few calls deeper
+     * per level, so deeper expressions are rejected instead of overflowing
+     * the stack.
+     */
+    private static final int MAX_DEPTH = 1000;
+
+    private static final SkateRamp.Function X = x -> x;
+
+    private final String text;
+    private int pos;
+    private int depth;
+
+    private FunctionParser(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses and compiles a function of x.
+     *
+     * @param  expression text of the function
+     * @return the compiled function
+     * @throws IllegalArgumentException if the expression is malformed
+     */
+    static SkateRamp.Function compile(String expression) {
+        FunctionParser parser = new FunctionParser(expression);
+        SkateRamp.Function f = parser.sum();
+        parser.skipSpaces();
+        if (parser.pos < expression.length()) {
+            throw parser.error();
+        }
+        return f;
+    }
+
+    /**
+     * A function with the same value everywhere, kept as its own class so
+     * the compiler can fold it into the operations around it.
+     */
+    private static final class Constant implements SkateRamp.Function {
+        private final double value;
+
+        Constant(double value) {
+            this.value = value;
+        }
+
+        public double getY(double x) {
+            return value;
+        }
+    }
+
+    private SkateRamp.Function sum() {
+        List<SkateRamp.Function> operands = new ArrayList<>();
+        StringBuilder operators = new StringBuilder();
+        operands.add(product());
+        while (true) {
+            skipSpaces();
+            if (pos == text.length() || "+-".indexOf(text.charAt(pos)) < 0) {
+                return chain(operands, operators);
+            }
+            operators.append(text.charAt(pos++));
+            operands.add(product());
+        }
+    }
+
+    private SkateRamp.Function product() {
+        List<SkateRamp.Function> operands = new ArrayList<>();
+        StringBuilder operators = new StringBuilder();
+        operands.add(unary());
+        while (true) {
+            skipSpaces();
+            if (pos == text.length()) {
+                return chain(operands, operators);
+            }
+            char next = text.charAt(pos);
+            if (next == '*' || next == '/') {
+                pos++;
+                operators.append(next);
+                operands.add(unary());
+            } else if (next == '(' || Character.isLetterOrDigit(next) || next == '.') {
+                operators.append('*');
+                operands.add(power());
+            } else {
+                return chain(operands, operators);
+            }
+        }
+    }
+
+    private SkateRamp.Function unary() {
+        if (++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Expression is nested too deeply");
+        }
+        try {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == '-') {
+                pos++;
+                SkateRamp.Function operand = unary();
+                if (operand instanceof Constant) {
+                    return new Constant(-((Constant)operand).value);
+                }
+                return x -> -operand.getY(x);
+            }
+            if (pos < text.length() && text.charAt(pos) == '+') {
+                pos++;
+                return unary();
+            }
+            return power();
+        } finally {
+            depth--;
+        }
+    }
+
+    private SkateRamp.Function power() {
+        SkateRamp.Function base = operand();
+        skipSpaces();
+        if (pos < text.length() && text.charAt(pos) == '^') {
+            pos++;
+            return binary('^', base, unary());
+        }
+        return base;
+    }
+
+    private SkateRamp.Function operand() {
+        skipSpaces();
+        if (pos == text.length()) {
+            throw error();
+        }
+        char next = text.charAt(pos);
+        if (next == '(') {
+            pos++;
+            SkateRamp.Function value = sum();
+            expect(')');
+            return value;
+        }
+        if (isDigit(next) || next == '.') {
+            return new Constant(number());
+        }
+        if (Character.isLetter(next)) {
+            int start = pos;
+            while (pos < text.length() && Character.isLetterOrDigit(text.charAt(pos))) {
+                pos++;
+            }
+            String name = text.substring(start, pos).toLowerCase();
+            switch (name) {
+                case "x":
+                    return X;
+                case "pi":
+                    return new Constant(Math.PI);
+                case "e":
+                    return new Constant(Math.E);
+                default:
+                    skipSpaces();
+                    if (pos == text.length() || text.charAt(pos) != '(') {
+                        pos = start;
+                        throw new IllegalArgumentException("Unknown name " + name);
+                    }
+                    pos++;
+                    SkateRamp.Function argument = sum();
+                    expect(')');
+                    return call(name, argument, start);
+            }
+        }
+        throw error();
+    }
+
+    /**
+     * Reads a decimal number with an optional exponent, like 2.5e-3. A
+     * second decimal point or a point with no digits is reported where it
+     * stands.
+     */
+    private double number() {
+        int start = pos;
+        boolean digits = false;
+        boolean point = false;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (isDigit(c)) {
+                digits = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+            pos++;
+        }
+        if (pos < text.length() && text.charAt(pos) == '.') {
+            throw error();
+        }
+        if (!digits) {
+            pos = start;
+            throw error();
+        }
+        if (pos + 1 < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+            int mark = pos++;
+            if (text.charAt(pos) == '+' || text.charAt(pos) == '-') {
+                pos++;
+            }
+            if (pos < text.length() && isDigit(text.charAt(pos))) {
+                while (pos < text.length() && isDigit(text.charAt(pos))) {
+                    pos++;
+                }
+            } else {
+                pos = mark;
+            }
+        }
+        return Double.parseDouble(text.substring(start, pos));
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * Compiles operands joined left to right by operators, all + and - or
+     * all * and /, where operators.charAt(i) comes before operand i + 1.
+     * Leading constants are folded, as binary() would, and what's left of a
+     * longer chain becomes one lambda that loops over the operands in the
+     * same order, so the result matches nested binary operations bit for bit.
+     */
+    private static SkateRamp.Function chain(List<SkateRamp.Function> operands, CharSequence operators) {
+        SkateRamp.Function first = operands.get(0);
+        int next = 1;
+        while (next < operands.size() && first instanceof Constant && operands.get(next) instanceof Constant) {
+            first = binary(operators.charAt(next - 1), first, operands.get(next));
+            next++;
+        }
+        if (next == operands.size()) {
+            return first;
+        }
+        if (next == operands.size() - 1) {
+            return binary(operators.charAt(next - 1), first, operands.get(next));
+        }
+        SkateRamp.Function head = first;
+        SkateRamp.Function[] rest = operands.subList(next, operands.size()).toArray(new SkateRamp.Function[0]);
+        boolean[] inverse = new boolean[rest.length];
+        for (int i = 0; i < rest.length; i++) {
+            char operator = operators.charAt(next - 1 + i);
+            inverse[i] = operator == '-' || operator == '/';
+        }
+        if (operators.charAt(0) == '+' || operators.charAt(0) == '-') {
+            return x -> {
+                double result = head.getY(x);
+                for (int i = 0; i < rest.length; i++) {
+                    double y = rest[i].getY(x);
+                    result = inverse[i] ? result - y : result + y;
+                }
+                return result;
+            };
+        }
+        return x -> {
+            double result = head.getY(x);
+            for (int i = 0; i < rest.length; i++) {
+                double y = rest[i].getY(x);
+                result = inverse[i] ? result / y : result * y;
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Compiles a binary operation, folding it if both sides are constant and
+     * giving constant operands lambdas of their own.
+     */
+    private static SkateRamp.Function binary(char operator, SkateRamp.Function left, SkateRamp.Function right) {
+        if (left instanceof Constant && right instanceof Constant) {
+            double l = ((Constant)left).value;
+            double r = ((Constant)right).value;
+            switch (operator) {
+                case '+':
+                    return new Constant(l + r);
+                case '-':
+                    return new Constant(l - r);
+                case '*':
+                    return new Constant(l * r);
+                case '/':
+                    return new Constant(l / r);
+                default:
+                    return new Constant(Math.pow(l, r));
+            }
+        }
+        if (operator == '^') {
+            return power(left, right);
+        }
+        if (right instanceof Constant) {
+            double r = ((Constant)right).value;
+            switch (operator) {
+                case '+':
+                    return x -> left.getY(x) + r;
+                case '-':
+                    return x -> left.getY(x) - r;
+                case '*':
+                    return x -> left.getY(x) * r;
+                default:
+                    return x -> left.getY(x) / r;
+            }
+        }
+        if (left instanceof Constant) {
+            double l = ((Constant)left).value;
+            switch (operator) {
+                case '+':
+                    return x -> l + right.getY(x);
+                case '-':
+                    return x -> l - right.getY(x);
+                case '*':
+                    return x -> l * right.getY(x);
+                default:
+                    return x -> l / right.getY(x);
+            }
+        }
+        switch (operator) {
+            case '+':
+                return x -> left.getY(x) + right.getY(x);
+            case '-':
+                return x -> left.getY(x) - right.getY(x);
+            case '*':
+                return x -> left.getY(x) * right.getY(x);
+            default:
+                return x -> left.getY(x) / right.getY(x);
+        }
+    }
+
+    /**
+     * Compiles base^exponent. Constant exponents 2 and 3 multiply directly,
+     * other small integers square and multiply, and e^f becomes Math.exp().
+     */
+    private static SkateRamp.Function power(SkateRamp.Function base, SkateRamp.Function exponent) {
+        if (base instanceof Constant && ((Constant)base).value == Math.E) {
+            return x -> Math.exp(exponent.getY(x));
+        }
+        if (!(exponent instanceof Constant)) {
+            return x -> Math.pow(base.getY(x), exponent.getY(x));
+        }
+        double n = ((Constant)exponent).value;
+        if (n == 0) {
+            return new Constant(1);
+        } else if (n == 1) {
+            return base;
+        } else if (n == 2) {
+            return x -> {
+                double b = base.getY(x);
+                return b * b;
+            };
+        } else if (n == 3) {
+            return x -> {
+                double b = base.getY(x);
+                return b * b * b;
+            };
+        } else if (n == 0.5) {
+            return x -> Math.sqrt(base.getY(x));
+        } else if (n == Math.rint(n) && Math.abs(n) <= MAX_MULTIPLY_POWER) {
+            int power = (int)Math.abs(n);
+            boolean reciprocal = n < 0;
+            return x -> {
+                double b = base.getY(x);
+                double result = 1;
+                for (int bits = power; bits != 0; bits >>>= 1) {
+                    if ((bits & 1) != 0) {
+                        result *= b;
+                    }
+                    b *= b;
+                }
+                return reciprocal ? 1 / result : result;
+            };
+        }
+        return x -> Math.pow(base.getY(x), n);
+    }
+
+    /**
+     * Compiles a call to a named function, folding it if the argument is
+     * constant.
+     */
+    private SkateRamp.Function call(String name, SkateRamp.Function argument, int start) {
+        SkateRamp.Function f;
+        switch (name) {
+            case "sin":
+                f = x -> Math.sin(argument.getY(x));
+                break;
+            case "cos":
+                f = x -> Math.cos(argument.getY(x));
+                break;
+            case "tan":
+                f = x -> Math.tan(argument.getY(x));
+                break;
+            case "asin":
+                f = x -> Math.asin(argument.getY(x));
+                break;
+            case "acos":
+                f = x -> Math.acos(argument.getY(x));
+                break;
+            case "atan":
+                f = x -> Math.atan(argument.getY(x));
+                break;
+            case "sinh":
+                f = x -> Math.sinh(argument.getY(x));
+                break;
+            case "cosh":
+                f = x -> Math.cosh(argument.getY(x));
+                break;
+            case "tanh":
+                f = x -> Math.tanh(argument.getY(x));
+                break;
+            case "exp":
+                f = x -> Math.exp(argument.getY(x));
+                break;
+            case "log":
+            case "ln":
+                f = x -> Math.log(argument.getY(x));
+                break;
+            case "log10":
+                f = x -> Math.log10(argument.getY(x));
+                break;
+            case "sqrt":
+                f = x -> Math.sqrt(argument.getY(x));
+                break;
+            case "cbrt":
+                f = x -> Math.cbrt(argument.getY(x));
+                break;
+            case "abs":
+                f = x -> Math.abs(argument.getY(x));
+                break;
+            default:
+                pos = start;
+                throw new IllegalArgumentException("Unknown function " + name);
+        }
+        return argument instanceof Constant ? new Constant(f.getY(0)) : f;
+    }
+
+    private void expect(char c) {
+        skipSpaces();
+        if (pos == text.length() || text.charAt(pos) != c) {
+            throw error();
+        }
+        pos++;
+    }
+
+    private void skipSpaces() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private IllegalArgumentException error() {
+        return new IllegalArgumentException(pos < text.length()
+                ? "Unexpected '" + text.charAt(pos) + "' at position " + (pos + 1)
+                : "Expression ends too early");
+    }
+}
@@ -1,8 +1,24 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
 
 /**
  * Filename: SkateRamp.java
- * Description: Estimates the area under a curve.
+ * Description: Estimates the area under a curve. The default method is
+ *              adaptive Simpson quadrature, which halves only the pieces of
+ *              the interval where the estimate hasn't settled and reuses
+ *              every function value it has already computed. Adaptive
+ *              Gauss-Kronrod and the original rectangle loop are there too.
+ *              estimateAreaInParallel() splits the interval into a fixed
+ *              number of chunks and integrates them on several threads:
+ *                  java SkateRamp -threads 4 sin 0 100 0.0001%
+ *              Besides poly and sin, "expr" takes any function of x, which
+ *              FunctionParser compiles before integrating:
+ *                  java SkateRamp expr "exp(-x^2) * cos(3x)" -2 2 0.001%
  * Author: Natalie Lau
  * Date: 14 March 2021
  */
@@ -13,29 +29,103 @@ public class SkateRamp {
     private double upperBound;
     private ArrayList<Double> coeffs = new ArrayList<>();
     private String functionType;
+    private Function expression;
+    private final LongAdder evaluations = new LongAdder();
 
     /**
-     *  The interface Function will be implemented by Polynomial and Sine.
-     *  The concrete classes must implement the getY() method.
+     * Deepest adaptive Simpson recursion, and most Gauss-Kronrod pieces,
+     * before giving up on the tolerance and returning the best estimate.
+     */
+    private static final int MAX_DEPTH = 50;
+    private static final int MAX_SEGMENTS = 100000;
+
+    /**
+     * Chunks the interval is split into for parallel integration. It doesn't
+     * depend on the thread count, so neither does the result.
+     */
+    public static final int CHUNKS = 64;
+
+    /**
+     * Gauss-Kronrod 15-point nodes on [-1, 1], from the outside in, and their
+     * weights. The odd-numbered nodes and the middle one are also the nodes
+     * of the 7-point Gauss rule, with weights GAUSS_WEIGHTS.
+     */
+    private static final double[] KRONROD_NODES = {
+        0.991455371120812639206854697526329, 0.949107912342758524526189684047851,
+        0.864864423359769072789712788640926, 0.741531185599394439863864773280788,
+        0.586087235467691130294144845693013, 0.405845151377397166906606412076961,
+        0.207784955007898467600689403773245, 0.0
+    };
+    private static final double[] KRONROD_WEIGHTS = {
+        0.022935322010529224963732008058970, 0.063092092629978553290700663189204,
+        0.104790010322250183839876322541518, 0.140653259715525918745189590510238,
+        0.169004726639267902826583426598550, 0.190350578064785409913256402421014,
+        0.204432940075298892414161999234649, 0.209482141084727828012999174891714
+    };
+    private static final double[] GAUSS_WEIGHTS = {
+        0.129484966168869693270611432679082, 0.279705391489276667901467771423780,
+        0.381830050505118944950369775488975, 0.417959183673469387755102040816327
+    };
+
+    /**
+     *  The interface Function will be implemented by Polynomial, Sine and the
+     *  functions FunctionParser compiles. Implementations must implement the
+     *  getY() method, and can override the batch getY() with a loop over the
+     *  whole array.
      */
     interface Function {
         double getY(double x);
+
+        /**
+         * Calculates y for each x in xs, writing them to the same positions
+         * of out.
+         */
+        default void getY(double[] xs, double[] out) {
+            for (int i = 0; i < xs.length; i++) {
+                out[i] = getY(xs[i]);
+            }
+        }
     }
 
-    class Polynomial implements Function {
+    static class Polynomial implements Function {
+        private final double[] coefficients;
+
         /**
-         * Calculates y, given x, for a polynomial curve.
+         * Constructor takes in the coefficients, constant term first.
+         */
+        Polynomial(double[] coefficients) {
+            this.coefficients = coefficients.clone();
+        }
+
+        /**
+         * Calculates y, given x, for a polynomial curve, with Horner's rule:
+         * one multiply and one add per coefficient.
          */
         public double getY(double x) {
             double y = 0;
-            for (int i = 0; i < numCoeff; i++) {
-                y += Math.pow(x, i) * coeffs.get(i);
+            for (int i = coefficients.length - 1; i >= 0; i--) {
+                y = y * x + coefficients[i];
             }
             return y;
         }
+
+        /**
+         * Runs Horner's rule on the whole batch one coefficient at a time, so
+         * the inner loop is independent multiply-adds the JIT can vectorize.
+         */
+        @Override
+        public void getY(double[] xs, double[] out) {
+            Arrays.fill(out, 0, xs.length, 0);
+            for (int k = coefficients.length - 1; k >= 0; k--) {
+                double c = coefficients[k];
+                for (int i = 0; i < xs.length; i++) {
+                    out[i] = out[i] * xs[i] + c;
+                }
+            }
+        }
     }
 
-    class Sine implements Function {
+    static class Sine implements Function {
         /**
          * Calculates y, given x, for a sine curve.
          */
@@ -53,7 +143,7 @@ public class SkateRamp {
             throw new IllegalArgumentException("Must provide at least 3 args");
         }
         functionType = args[0].toLowerCase();
-        if (!functionType.equals("poly") && !functionType.equals("sin")) {
+        if (!functionType.equals("poly") && !functionType.equals("sin") && !functionType.equals("expr")) {
             throw new IllegalArgumentException("Unrecognized function");
         }
         if (args[args.length - 1].contains("%")) {
@@ -79,52 +169,292 @@ public class SkateRamp {
                 throw new IllegalArgumentException("Need at least 1 coeff for poly");
             }
         }
+        if (functionType.equals("expr")) {
+            if (numCoeff != 1) {
+                throw new IllegalArgumentException("Need exactly 1 expression for expr");
+            }
+            expression = FunctionParser.compile(args[1]);
+            return;
+        }
         for (int i = 0; i < numCoeff; i++) {
             coeffs.add(Double.parseDouble(args[i + 1]));
         }
     }
 
+    /**
+     * Estimates the area under the curve with adaptive Simpson quadrature, to
+     * within percentage / 100, the same absolute tolerance the rectangle loop
+     * stops at.
+     *
+     * @return the estimated area
+     */
+    public double estimateAreaUnderRamp() {
+        Function f = curve();
+        double a = lowerBound;
+        double b = upperBound;
+        double m = (a + b) / 2;
+        double fa = f.getY(a);
+        double fm = f.getY(m);
+        double fb = f.getY(b);
+        double whole = (b - a) / 6 * (fa + 4 * fm + fb);
+        long[] evaluated = {3};
+        double area = simpson(f, a, b, fa, fm, fb, whole, percentage / 100, MAX_DEPTH, evaluated);
+        evaluations.add(evaluated[0]);
+        return area;
+    }
+
+    /**
+     * Refines the Simpson estimate whole of [a, b], whose endpoint and
+     * midpoint values are fa, fb and fm, by splitting it in half. Each half
+     * needs only its own midpoint value. If the halves agree with whole to
+     * within 15 * tolerance, the Richardson-corrected sum is returned;
+     * otherwise each half is refined with half the tolerance. The function
+     * values computed are counted in evaluated[0], which the caller adds to
+     * the shared count once, off the hot path.
+     */
+    private double simpson(Function f, double a, double b, double fa, double fm, double fb,
+            double whole, double tolerance, int depth, long[] evaluated) {
+        double m = (a + b) / 2;
+        double leftMiddle = (a + m) / 2;
+        double rightMiddle = (m + b) / 2;
+        double fLeft = f.getY(leftMiddle);
+        double fRight = f.getY(rightMiddle);
+        evaluated[0] += 2;
+        double left = (m - a) / 6 * (fa + 4 * fLeft + fm);
+        double right = (b - m) / 6 * (fm + 4 * fRight + fb);
+        double difference = left + right - whole;
+        if (depth <= 0 || Math.abs(difference) <= 15 * tolerance || m <= a || m >= b) {
+            return left + right + difference / 15;
+        }
+        return simpson(f, a, m, fa, fLeft, fm, left, tolerance / 2, depth - 1, evaluated)
+                + simpson(f, m, b, fm, fRight, fb, right, tolerance / 2, depth - 1, evaluated);
+    }
+
+    /**
+     * Estimates the area under the curve with globally adaptive 15-point
+     * Gauss-Kronrod quadrature: the piece with the largest error estimate is
+     * split in half until the errors add up to at most percentage / 100.
+     * The Kronrod rule reuses the 7 Gauss points, so each piece costs 15
+     * function values and comes with its own error estimate.
+     *
+     * @return the estimated area
+     */
+    public double estimateAreaGaussKronrod() {
+        return gaussKronrod(curve(), lowerBound, upperBound, percentage / 100)[0];
+    }
+
+    /**
+     * Estimates the area under the curve on a fork-join pool. The interval
+     * is split into CHUNKS equal chunks, each integrated with adaptive
+     * Gauss-Kronrod to within its share of the tolerance, and the chunk
+     * areas are added in order with Neumaier's compensated summation. The
+     * chunks and their order are fixed, so every thread count gives the same
+     * result, bit for bit.
+     *
+     * @param  threads number of worker threads, at least 1
+     * @return the estimated area and the sum of the chunks' error estimates
+     */
+    public double[] estimateAreaInParallel(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Must use at least 1 thread");
+        }
+        double width = (upperBound - lowerBound) / CHUNKS;
+        double tolerance = percentage / 100 / CHUNKS;
+        IntStream chunks = IntStream.range(0, CHUNKS).parallel();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        double[][] results;
+        try {
+            results = pool.submit(() -> chunks.mapToObj(i -> {
+                double a = lowerBound + i * width;
+                double b = i == CHUNKS - 1 ? upperBound : lowerBound + (i + 1) * width;
+                return gaussKronrod(curve(), a, b, tolerance);
+            }).toArray(double[][]::new)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while integrating");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        double[] areas = new double[CHUNKS];
+        double[] errors = new double[CHUNKS];
+        for (int i = 0; i < CHUNKS; i++) {
+            areas[i] = results[i][0];
+            errors[i] = results[i][1];
+        }
+        return new double[] {neumaierSum(areas), neumaierSum(errors)};
+    }
+
+    /**
+     * Integrates f over [a, b] with globally adaptive Gauss-Kronrod, splitting
+     * the piece with the largest error estimate until the estimates add up to
+     * at most tolerance. Every piece costs 15 function values; they're added
+     * to the shared count once at the end.
+     *
+     * @return the area and its error estimate
+     */
+    private double[] gaussKronrod(Function f, double a, double b, double tolerance) {
+        PriorityQueue<Segment> segments = new PriorityQueue<>((s1, s2) -> Double.compare(s2.error, s1.error));
+        Segment first = kronrod(f, a, b);
+        segments.add(first);
+        long pieces = 1;
+        double error = first.error;
+        while (error > tolerance && segments.size() < MAX_SEGMENTS) {
+            Segment worst = segments.poll();
+            double m = (worst.a + worst.b) / 2;
+            if (m <= worst.a || m >= worst.b) {
+                segments.add(worst);
+                break;
+            }
+            Segment left = kronrod(f, worst.a, m);
+            Segment right = kronrod(f, m, worst.b);
+            pieces += 2;
+            error += left.error + right.error - worst.error;
+            segments.add(left);
+            segments.add(right);
+        }
+        double[] areas = new double[segments.size()];
+        double[] errors = new double[segments.size()];
+        int i = 0;
+        for (Segment segment : segments) {
+            areas[i] = segment.area;
+            errors[i++] = segment.error;
+        }
+        evaluations.add(15 * pieces);
+        return new double[] {neumaierSum(areas), neumaierSum(errors)};
+    }
+
+    /**
+     * Adds values in order with Neumaier's compensated summation, which
+     * carries the low-order bits each addition loses in a separate
+     * correction term.
+     */
+    private static double neumaierSum(double[] values) {
+        double sum = 0;
+        double compensation = 0;
+        for (double value : values) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+        return sum + compensation;
+    }
+
+    /**
+     * Applies the 15-point Kronrod rule to [a, b], with the difference from
+     * the embedded 7-point Gauss rule as the error estimate.
+     */
+    private static Segment kronrod(Function f, double a, double b) {
+        double center = (a + b) / 2;
+        double halfWidth = (b - a) / 2;
+        double[] xs = new double[15];
+        for (int i = 0; i < 7; i++) {
+            double dx = halfWidth * KRONROD_NODES[i];
+            xs[i] = center - dx;
+            xs[i + 7] = center + dx;
+        }
+        xs[14] = center;
+        double[] ys = new double[15];
+        f.getY(xs, ys);
+        double fCenter = ys[14];
+        double kronrod = KRONROD_WEIGHTS[7] * fCenter;
+        double gauss = GAUSS_WEIGHTS[3] * fCenter;
+        for (int i = 0; i < 7; i++) {
+            double pair = ys[i] + ys[i + 7];
+            kronrod += KRONROD_WEIGHTS[i] * pair;
+            if (i % 2 == 1) {
+                gauss += GAUSS_WEIGHTS[i / 2] * pair;
+            }
+        }
+        return new Segment(a, b, kronrod * halfWidth, Math.abs((kronrod - gauss) * halfWidth));
+    }
+
+    /**
+     * A piece of the interval with its area and error estimates.
+     */
+    private static final class Segment {
+        private final double a;
+        private final double b;
+        private final double area;
+        private final double error;
+
+        Segment(double a, double b, double area, double error) {
+            this.a = a;
+            this.b = b;
+            this.area = area;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Returns the curve named by functionType.
+     */
+    private Function curve() {
+        if (expression != null) {
+            return expression;
+        }
+        if (functionType.equals("poly")) {
+            double[] coefficients = new double[numCoeff];
+            for (int i = 0; i < numCoeff; i++) {
+                coefficients[i] = coeffs.get(i);
+            }
+            return new Polynomial(coefficients);
+        }
+        return new Sine();
+    }
+
+    /**
+     * Returns how many times the curve has been evaluated so far.
+     */
+    public long getEvaluations() {
+        return evaluations.sum();
+    }
+
     /**
      * Estimates the area under the curve by calculating the area under an
      * increasing number of rectangles, until 2 areas are within 1% of each other.
+     * Every pass starts over, so this takes O(n^2) function values for n
+     * rectangles; it's kept for comparison with the adaptive methods.
      *
      * @return the estimated area
      */
-    public double estimateAreaUnderRamp() {
+    public double estimateAreaWithRectangles() {
         double estimate = Integer.MIN_VALUE;
         double last = Integer.MAX_VALUE;
         int iteration = 0;
+        Function f = curve();
+        double[] xs = new double[0];
+        double[] ys = new double[0];
+        long evaluated = 0;
         while (functionType.equals("poly")
                 && Math.round(Math.abs(last - estimate) * 1000000d) / 1000000d >= (percentage / 100)
                 || !functionType.equals("poly") && Math.abs(last - estimate) >= (percentage / 100)) {
             last = estimate;
-            double width;
-            double x;
-            double height;
             iteration++;
-            width = (upperBound - lowerBound) / iteration;
-            if (functionType.equals("poly")) {
-                estimate = 0;
-                x = lowerBound + (width / 2);
-                for (int i = 0; i < iteration; i++) {
-                    Polynomial poly = new Polynomial();
-                    height = poly.getY(x);
-                    estimate += width * height;
-                    x += width;
-                }
-            } else {
-                estimate = 0;
-                x = lowerBound + (width / 2);
-                for (int i = 0; i < iteration; i++) {
-                    Sine sin = new Sine();
-                    height = sin.getY(x);
-                    estimate += width * height;
-                    x += width;
-                }
-
+            double width = (upperBound - lowerBound) / iteration;
+            if (xs.length != iteration) {
+                xs = new double[iteration];
+                ys = new double[iteration];
+            }
+            double x = lowerBound + (width / 2);
+            for (int i = 0; i < iteration; i++) {
+                xs[i] = x;
+                x += width;
+            }
+            f.getY(xs, ys);
+            evaluated += iteration;
+            estimate = 0;
+            for (int i = 0; i < iteration; i++) {
+                estimate += width * ys[i];
             }
             System.out.println(last);
         }
+        evaluations.add(evaluated);
         System.out.println(iteration);
         return last;
     }
@@ -134,6 +464,13 @@ public class SkateRamp {
      */
     public static void main(String[] args) {
         try {
+            if (args.length >= 2 && args[0].equals("-threads")) {
+                int threads = Integer.parseInt(args[1]);
+                SkateRamp ramp = new SkateRamp(Arrays.copyOfRange(args, 2, args.length));
+                double[] estimate = ramp.estimateAreaInParallel(threads);
+                System.out.println(estimate[0] + " +/- " + estimate[1]);
+                return;
+            }
             SkateRamp ramp = new SkateRamp(args);
             double estimate = ramp.estimateAreaUnderRamp();
             System.out.println(estimate);